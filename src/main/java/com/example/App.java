@@ -1,11 +1,22 @@
 package com.example;
 
+import org.apache.commons.cli.ParseException;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 
+import java.io.IOException;
+import java.util.OptionalInt;
+
 @SpringBootApplication
 public class App {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException, ParseException {
+        if (args.length == 0 || !args[0].equals(CmdRunner.DAEMON_COMMAND)) {
+            OptionalInt status = DaemonClient.run(DaemonClient.socketPath(args), DaemonClient.commandArgs(args));
+            if (status.isPresent()) {
+                System.exit(status.getAsInt());
+            }
+        }
+
         SpringApplication.run(App.class, args);
     }
 }
\ No newline at end of file
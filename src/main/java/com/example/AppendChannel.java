@@ -0,0 +1,79 @@
+package com.example;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * A write channel kept open across appends, with the {@link GroupCommit} that syncs it. The channel is
+ * reopened when asked for a different file, or when its file has been replaced or removed underneath it;
+ * every time it is opened, a torn tail left by an interrupted write is cut off first.
+ */
+class AppendChannel implements Closeable {
+    private final Durability durability;
+    private final Recovery recovery;
+    private final OpenOption[] options;
+
+    private FileChannel channel;
+    private Path path;
+    private Object fileKey;
+    private GroupCommit groupCommit;
+
+    /**
+     * Finds the length of the intact part of a file, reading only as much of its tail as needed.
+     */
+    @FunctionalInterface
+    interface Recovery {
+        Recovery NONE = FileChannel::size;
+
+        long validLength(FileChannel channel) throws IOException;
+    }
+
+    AppendChannel(Durability durability, Recovery recovery, OpenOption... options) {
+        this.durability = durability;
+        this.recovery = recovery;
+        this.options = options;
+    }
+
+    FileChannel open(Path path) throws IOException {
+        Object currentKey = Files.exists(path) ? fileKey(path) : null;
+        if (channel == null || !path.equals(this.path) || currentKey == null || !currentKey.equals(fileKey)) {
+            close();
+            channel = FileChannel.open(path, options);
+            long validLength = recovery.validLength(channel);
+            if (validLength < channel.size()) {
+                channel.truncate(validLength);
+            }
+            this.path = path;
+            fileKey = fileKey(path);
+            groupCommit = new GroupCommit(channel, durability);
+        }
+        return channel;
+    }
+
+    GroupCommit groupCommit() {
+        return groupCommit;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            try (FileChannel closing = channel) {
+                groupCommit.close();
+            } finally {
+                channel = null;
+                path = null;
+                fileKey = null;
+                groupCommit = null;
+            }
+        }
+    }
+
+    private static Object fileKey(Path path) throws IOException {
+        return Files.readAttributes(path, BasicFileAttributes.class).fileKey();
+    }
+}
@@ -0,0 +1,43 @@
+package com.example;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Sidecar file with the number of events ever appended to a store that has no {@link StoreSnapshot}, used as
+ * its {@link EventStore#end()}: compaction does not lower it, so a stale {@link EventStore#appendIf} cannot
+ * match again. Written under the store lock; a lost file starts again from zero.
+ */
+class AppendCounter {
+    static final String SUFFIX = ".appended";
+
+    private final Path path;
+
+    AppendCounter(File store) {
+        this.path = Path.of(store.getPath() + SUFFIX);
+    }
+
+    long get() throws IOException {
+        if (!Files.exists(path)) {
+            return 0;
+        }
+        byte[] bytes = Files.readAllBytes(path);
+        return bytes.length < Long.BYTES ? 0 : ByteBuffer.wrap(bytes).getLong();
+    }
+
+    void add(long count) throws IOException {
+        Path dir = path.toAbsolutePath().getParent();
+        Path tmp = Files.createTempFile(dir, path.getFileName().toString(), ".tmp");
+        try {
+            Files.write(tmp, ByteBuffer.allocate(Long.BYTES).putLong(get() + count).array());
+        } catch (IOException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,85 @@
+package com.example;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Input of the {@code batch} command: one command per line, arguments separated by whitespace and optionally
+ * wrapped in single or double quotes. Blank lines and lines starting with {@code #} are skipped.
+ */
+final class BatchScript {
+    private BatchScript() {
+    }
+
+    /**
+     * Opens the script file, or standard input when {@code file} is null.
+     */
+    static BufferedReader open(String file) throws IOException {
+        return file != null
+                ? Files.newBufferedReader(Path.of(file))
+                : new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+    }
+
+    static List<String[]> readAll(BufferedReader reader) throws IOException {
+        List<String[]> commands = new ArrayList<>();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            String[] args = parse(line);
+            if (args != null) {
+                commands.add(args);
+            }
+        }
+        return commands;
+    }
+
+    /**
+     * Splits a line into arguments, or returns null if it holds no command.
+     */
+    static String[] parse(String line) {
+        String trimmed = line.strip();
+        if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+            return null;
+        }
+
+        List<String> args = new ArrayList<>();
+        StringBuilder arg = new StringBuilder();
+        boolean inArg = false;
+        char quote = 0;
+
+        for (int i = 0; i < trimmed.length(); i++) {
+            char c = trimmed.charAt(i);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                } else {
+                    arg.append(c);
+                }
+            } else if (c == '"' || c == '\'') {
+                quote = c;
+                inArg = true;
+            } else if (Character.isWhitespace(c)) {
+                if (inArg) {
+                    args.add(arg.toString());
+                    arg.setLength(0);
+                    inArg = false;
+                }
+            } else {
+                arg.append(c);
+                inArg = true;
+            }
+        }
+        if (quote != 0) {
+            throw new IllegalArgumentException("Unterminated quote in batch line: " + line);
+        }
+        if (inArg) {
+            args.add(arg.toString());
+        }
+        return args.toArray(String[]::new);
+    }
+}
@@ -0,0 +1,218 @@
+package com.example;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.PrimitiveIterator;
+import java.util.zip.CRC32C;
+
+/**
+ * Fixed-width binary event log: a 16-byte header followed by records of a status ordinal and epoch millis,
+ * each followed by a CRC32C of those 9 bytes. Files written before checksums were added (version 1) hold
+ * bare 9-byte records and are still read and appended to as such. Reads go through {@link MappedRecords},
+ * never parse text, and skip records whose checksum does not match.
+ */
+public class BinaryEventStore extends LogEventStore {
+    static final String EXTENSION = ".bin";
+    static final int MAGIC = 0x45565442;
+    static final short PLAIN_VERSION = 1;
+    static final short VERSION = 2;
+    static final int HEADER_SIZE = 16;
+    static final int RECORD_SIZE = 9;
+    static final int CHECKED_RECORD_SIZE = RECORD_SIZE + Integer.BYTES;
+
+    private static final int TAIL_RECORDS = 4096;
+    private static final Status[] STATUSES = Status.values();
+
+    public BinaryEventStore(File file) {
+        this(file, Durability.OS);
+    }
+
+    public BinaryEventStore(File file, Durability durability) {
+        super(file, durability);
+    }
+
+    @Override
+    protected LogEventStore sibling(File file) {
+        return new BinaryEventStore(file, Durability.OS);
+    }
+
+    @Override
+    protected long appendRecord(FileChannel channel, Event event) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + CHECKED_RECORD_SIZE);
+        int recordSize;
+        if (channel.size() == 0) {
+            putHeader(buffer);
+            recordSize = CHECKED_RECORD_SIZE;
+        } else {
+            recordSize = recordSize(channel);
+        }
+
+        int start = buffer.position();
+        if (recordSize == CHECKED_RECORD_SIZE) {
+            putRecord(buffer, event.status(), event.timestamp());
+        } else {
+            buffer.put((byte) event.status().ordinal()).putLong(event.timestamp());
+        }
+        buffer.flip();
+
+        long end = channel.size();
+        channel.write(buffer, end);
+        return end + start;
+    }
+
+    /**
+     * Cuts off only the records at the very end that fail their checksum: a bad record followed by good ones
+     * was not torn by a crash, and readers skip it without losing the records after it.
+     */
+    @Override
+    protected long recover(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size < HEADER_SIZE) {
+            return 0;
+        }
+
+        int recordSize = recordSize(channel);
+        long count = (size - HEADER_SIZE) / recordSize;
+        long aligned = HEADER_SIZE + count * recordSize;
+        if (recordSize == RECORD_SIZE) {
+            return aligned;
+        }
+
+        long first = Math.max(0, count - TAIL_RECORDS);
+        ByteBuffer tail = ByteBuffer.allocate((int) ((count - first) * recordSize));
+        readFully(channel, tail, HEADER_SIZE + first * recordSize);
+
+        int end = tail.position();
+        while (end > 0) {
+            int position = end - recordSize;
+            ByteBuffer record = tail.duplicate().position(position).limit(position + RECORD_SIZE);
+            if (checksum(record) == tail.getInt(position + RECORD_SIZE)) {
+                break;
+            }
+            end = position;
+        }
+        return HEADER_SIZE + first * recordSize + end;
+    }
+
+    @Override
+    protected long scanFrom(long offset, RecordVisitor visitor) throws IOException {
+        MappedRecords records = map();
+        if (records == null) {
+            return 0;
+        }
+
+        int recordSize = records.recordSize();
+        for (long i = Math.max(0, (offset - HEADER_SIZE) / recordSize); i < records.count(); i++) {
+            if (records.valid(i) && !visitor.visit(HEADER_SIZE + i * recordSize, STATUSES[records.status(i)], records.timestamp(i))) {
+                break;
+            }
+        }
+        return HEADER_SIZE + records.count() * recordSize;
+    }
+
+    @Override
+    protected void readAt(PrimitiveIterator.OfLong offsets, RecordVisitor visitor) throws IOException {
+        MappedRecords records = map();
+        if (records == null) {
+            return;
+        }
+
+        while (offsets.hasNext()) {
+            long offset = offsets.nextLong();
+            long i = (offset - HEADER_SIZE) / records.recordSize();
+            if (i >= records.count()) {
+                return;
+            }
+            if (records.valid(i) && !visitor.visit(offset, STATUSES[records.status(i)], records.timestamp(i))) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void scanBackward(EventVisitor visitor) throws IOException {
+        MappedRecords records = map();
+        if (records == null) {
+            return;
+        }
+
+        for (long i = records.count() - 1; i >= 0; i--) {
+            if (records.valid(i) && !visitor.visit(STATUSES[records.status(i)], records.timestamp(i))) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Copies the log up to its last complete record to {@code target}, which receives a file in this store's
+     * format; with a file or socket channel as the target the bytes never enter the JVM.
+     */
+    public void transferTo(WritableByteChannel target) throws IOException {
+        long end = snapshot().offset();
+        if (end < HEADER_SIZE) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            putHeader(header);
+            target.write(header.flip());
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            for (long position = 0; position < end; ) {
+                position += channel.transferTo(position, end - position, target);
+            }
+        }
+    }
+
+    static void putHeader(ByteBuffer buffer) {
+        buffer.putInt(MAGIC).putShort(VERSION).putShort((short) CHECKED_RECORD_SIZE).putLong(0);
+    }
+
+    /**
+     * Puts a record with its checksum, in the current format.
+     */
+    static void putRecord(ByteBuffer buffer, Status status, long timestamp) {
+        int start = buffer.position();
+        buffer.put((byte) status.ordinal()).putLong(timestamp);
+        buffer.putInt(checksum(buffer.duplicate().position(start).limit(start + RECORD_SIZE)));
+    }
+
+    static int checksum(ByteBuffer record) {
+        CRC32C crc = new CRC32C();
+        crc.update(record);
+        return (int) crc.getValue();
+    }
+
+    private MappedRecords map() throws IOException {
+        if (!file.exists()) {
+            return null;
+        }
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE) {
+                return null;
+            }
+            return new MappedRecords(channel, HEADER_SIZE, recordSize(channel));
+        }
+    }
+
+    private int recordSize(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        readFully(channel, header, 0);
+        header.flip();
+
+        if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC) {
+            throw new IOException("Not a binary event store: " + file);
+        }
+        short version = header.getShort();
+        if (version == PLAIN_VERSION) {
+            return RECORD_SIZE;
+        } else if (version == VERSION) {
+            return CHECKED_RECORD_SIZE;
+        }
+        throw new IOException("Unsupported binary event store version " + version + ": " + file);
+    }
+}
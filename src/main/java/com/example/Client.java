@@ -1,19 +1,18 @@
 package com.example;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import org.apache.commons.cli.*;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import java.io.File;
-import java.io.IOException;
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
-import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.ZoneOffset;
 import java.util.*;
-import java.util.stream.Collectors;
 
 @Component
 @RequiredArgsConstructor
@@ -22,6 +21,11 @@ public class Client {
     private static final String UP_COMMAND = "up";
     private static final String DOWN_COMMAND = "down";
     private static final String HISTORY_COMMAND = "history";
+    private static final String COMPACT_COMMAND = "compact";
+    static final String BATCH_COMMAND = "batch";
+
+    private static final int BATCH_BUFFER_SIZE = 1 << 16;
+    private static final PrintStream STDOUT = System.out;
 
     private final static Map<String, Options> COMMANDS = Map.of(
             STATUS_COMMAND, new Options(),
@@ -32,24 +36,45 @@ public class Client {
                     .addOption("t", "to", true, "To")
                     .addOption("s", "sort", true, "Sort")
                     .addOption("S", "status", true, "Status")
+                    .addOption("F", "format", true, "Format"),
+            BATCH_COMMAND, new Options()
+                    .addOption("f", "file", true, "File"),
+            COMPACT_COMMAND, new Options()
+                    .addOption("a", "max-age", true, "Max age")
+                    .addOption("n", "max-events", true, "Max events")
+                    .addOption("d", "downsample-after", true, "Downsample after")
     );
 
-    private final File eventsFile;
+    private final EventStore eventStore;
+
+    private RetentionPolicy retentionPolicy = RetentionPolicy.NONE;
+
+    /**
+     * The retention {@code compact} applies when given no limits of its own, and the daemon applies periodically.
+     */
+    @Autowired(required = false)
+    void setRetentionPolicy(RetentionPolicy retentionPolicy) {
+        this.retentionPolicy = retentionPolicy;
+    }
 
     public void run(String... args) throws ParseException, IOException {
+        run(System.out, args);
+    }
+
+    public void run(PrintStream out, String... args) throws ParseException, IOException {
         CommandLineParser parser = new DefaultParser();
 
         if (args.length == 0) {
-            System.out.println("Usage: vpn-client <command> [options]");
-            System.out.println("Commands:");
-            COMMANDS.keySet().forEach(command -> System.out.println("  " + command));
+            out.println("Usage: vpn-client <command> [options]");
+            out.println("Commands:");
+            COMMANDS.keySet().forEach(command -> out.println("  " + command));
             return;
         }
 
         String command = args[0];
 
         if (!COMMANDS.containsKey(command)) {
-            System.out.println("Unknown command: " + command);
+            out.println("Unknown command: " + command);
             return;
         }
 
@@ -61,44 +86,29 @@ public class Client {
                 Optional<Event> latestNotFailedEvent = getLatestNotFailedEvent();
 
                 if (latestNotFailedEvent.isEmpty()) {
-                    System.out.println("No events found");
+                    out.println("No events found");
                 } else {
-                    System.out.println("Status: " + latestNotFailedEvent.get().status());
+                    out.println("Status: " + latestNotFailedEvent.get().status());
 
                     if (latestNotFailedEvent.get().status() == Status.UP) {
                         long uptime = (System.currentTimeMillis() - latestNotFailedEvent.get().timestamp()) / 1000;
-                        System.out.println("Uptime: " + uptime + " seconds");
+                        out.println("Uptime: " + uptime + " seconds");
                     }
                 }
             }
-            case UP_COMMAND -> {
-                Optional<Event> latestNotFailedEvent = getLatestNotFailedEvent();
-
-                if (latestNotFailedEvent.isPresent() && latestNotFailedEvent.get().status() == Status.UP) {
-                    System.out.println("Already UP");
+            case UP_COMMAND -> changeStatus(out, Status.UP, Status.STARTING, "Starting...");
+            case DOWN_COMMAND -> changeStatus(out, Status.DOWN, Status.STOPPING, "Stopping...");
+            case BATCH_COMMAND -> runBatch(out, commandLine.getOptionValue("file"));
+            case COMPACT_COMMAND -> {
+                RetentionPolicy policy = commandLine.getOptions().length > 0
+                        ? RetentionPolicy.parse(commandLine.getOptionValue("max-age"),
+                        commandLine.getOptionValue("max-events"), commandLine.getOptionValue("downsample-after"))
+                        : retentionPolicy;
+
+                if (policy.isNone()) {
+                    out.println("No retention configured");
                 } else {
-                    Status randomResult = new Random().nextBoolean() ? Status.UP : Status.FAILED;
-
-                    System.out.println("Starting...");
-                    writeEventToFile(new Event(Status.STARTING, System.currentTimeMillis()));
-
-                    System.out.println("Status: " + randomResult.name());
-                    writeEventToFile(new Event(randomResult, System.currentTimeMillis()));
-                }
-            }
-            case DOWN_COMMAND -> {
-                Optional<Event> latestNotFailedEvent = getLatestNotFailedEvent();
-
-                if (latestNotFailedEvent.isPresent() && latestNotFailedEvent.get().status() == Status.DOWN) {
-                    System.out.println("Already DOWN");
-                } else {
-                    Status randomResult = new Random().nextBoolean() ? Status.DOWN : Status.FAILED;
-
-                    System.out.println("Stopping...");
-                    writeEventToFile(new Event(Status.STOPPING, System.currentTimeMillis()));
-
-                    System.out.println("Status: " + randomResult.name());
-                    writeEventToFile(new Event(randomResult, System.currentTimeMillis()));
+                    out.println("Removed " + compact(policy) + " events");
                 }
             }
             case HISTORY_COMMAND -> {
@@ -113,101 +123,132 @@ public class Client {
                 String sort = commandLine.getOptionValue("sort");
                 String status = commandLine.getOptionValue("status");
 
-                List<Event> events = filterEvents(from, to, sort, status);
+                HistoryRenderer.Format format = HistoryRenderer.Format.parse(commandLine.getOptionValue("format"));
+
+                if (format == HistoryRenderer.Format.BIN && from == -1 && to == -1 && sort == null && status == null
+                        && eventStore instanceof BinaryEventStore binaryStore) {
+                    binaryStore.transferTo(channel(out));
+                    return;
+                }
 
-                if (events.isEmpty()) {
-                    System.out.println("No events found");
+                HistoryRenderer renderer = new HistoryRenderer(out, format);
+                filterEvents(from, to, sort, status, renderer);
+
+                if (format == HistoryRenderer.Format.TEXT && renderer.count() == 0) {
+                    out.println("No events found");
                 } else {
-                    events.forEach(event -> {
-                        LocalDateTime dateTime = LocalDateTime.ofEpochSecond(event.timestamp() / 1000, 0, ZoneOffset.UTC);
-                        System.out.println("Status: " + event.status() + ", Timestamp: " + dateTime);
-                    });
+                    renderer.flush();
                 }
             }
         }
     }
 
-    private Optional<Event> getLatestNotFailedEvent() throws IOException {
-        Optional<Event> latestEvent = getLatestEvent();
-
-        if (latestEvent.isEmpty()) {
-            return Optional.empty();
-        } else {
-            if (latestEvent.get().status() == Status.FAILED) {
-                return getLatestEventByStatus(Status.UP, Status.DOWN);
-            } else {
-                return latestEvent;
-            }
-        }
+    /**
+     * The process's standard output as a file channel when {@code out} is still the original {@code System.out},
+     * so binary history can be transferred without passing through the heap.
+     */
+    private static WritableByteChannel channel(PrintStream out) {
+        out.flush();
+        return out == STDOUT ? new FileOutputStream(FileDescriptor.out).getChannel() : Channels.newChannel(out);
     }
 
-    private void writeEventToFile(Event event) throws IOException {
-        ObjectMapper objectMapper = new ObjectMapper();
+    static Options options(String command) {
+        return COMMANDS.get(command);
+    }
 
-        if (eventsFile.createNewFile()) {
-            objectMapper.writeValue(eventsFile, Collections.emptyList());
+    /**
+     * Runs every command of a {@link BatchScript} against the same store, through one buffered output that is
+     * flushed once at the end, or before the exception if a command fails.
+     */
+    private void runBatch(PrintStream out, String file) throws ParseException, IOException {
+        cacheScans();
+        PrintStream buffered = new PrintStream(new BufferedOutputStream(out, BATCH_BUFFER_SIZE), false, StandardCharsets.UTF_8);
+        BufferedReader reader = BatchScript.open(file);
+
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] args = BatchScript.parse(line);
+                if (args == null) {
+                    continue;
+                }
+                if (args[0].equals(BATCH_COMMAND)) {
+                    throw new IllegalArgumentException("Batch scripts cannot run " + BATCH_COMMAND);
+                }
+                run(buffered, args);
+            }
+        } finally {
+            buffered.flush();
+            if (file != null) {
+                reader.close();
+            }
         }
-
-        List<Event> events = objectMapper.readValue(eventsFile, new TypeReference<>() {
-        });
-        events.add(event);
-        objectMapper.writeValue(eventsFile, events);
     }
 
-    private Optional<Event> getLatestEventByStatus(Status... status) throws IOException {
-        return readAllEvents().stream()
-                .filter(event -> {
-                    for (Status s : status) {
-                        if (event.status() == s) {
-                            return true;
-                        }
-                    }
-                    return false;
-                })
-                .reduce((first, second) -> second)
-                .or(Optional::empty);
+    /**
+     * Keeps the events the store reads in memory from now on; for processes that run more than one command.
+     */
+    void cacheScans() {
+        eventStore.cacheScans();
     }
 
-    private Optional<Event> getLatestEvent() throws IOException {
-        return readAllEvents().stream()
-                .reduce((first, second) -> second)
-                .or(Optional::empty);
+    /**
+     * Applies the configured retention; returns the number of events removed.
+     */
+    long compact() throws IOException {
+        return retentionPolicy.isNone() ? 0 : compact(retentionPolicy);
     }
 
-    private List<Event> filterEvents(long from, long to, String sort, String status) throws IOException {
-        List<Event> events = readAllEvents();
+    private long compact(RetentionPolicy policy) throws IOException {
+        return eventStore.compact(policy.start(eventStore, System.currentTimeMillis()));
+    }
 
-        return events.stream()
-                .filter(event -> {
-                    if (from != -1 && event.timestamp() < from) {
-                        return false;
-                    }
-                    if (to != -1 && event.timestamp() > to) {
-                        return false;
-                    }
-                    return status == null || event.status().equals(Status.valueOf(status));
-                })
-                .sorted((event1, event2) -> {
-                    if (sort != null) {
-                        if (sort.equals("asc")) {
-                            return Long.compare(event1.timestamp(), event2.timestamp());
-                        } else if (sort.equals("desc")) {
-                            return Long.compare(event2.timestamp(), event1.timestamp());
-                        }
-                    }
-                    return 0;
-                })
-                .collect(Collectors.toList());
+    private Optional<Event> getLatestNotFailedEvent() throws IOException {
+        return eventStore.latestNotFailed();
     }
 
-    private List<Event> readAllEvents() throws IOException {
-        ObjectMapper objectMapper = new ObjectMapper();
+    /**
+     * Writes the transitional event and its random outcome in one conditional append, so that of several
+     * concurrent invocations only one acts on a given state; the others re-check against the new one.
+     */
+    private void changeStatus(PrintStream out, Status target, Status transitional, String progressMessage) throws IOException {
+        while (true) {
+            long end = eventStore.end();
+            Optional<Event> latestNotFailedEvent = getLatestNotFailedEvent();
+
+            if (latestNotFailedEvent.isPresent() && latestNotFailedEvent.get().status() == target) {
+                out.println("Already " + target);
+                return;
+            }
+
+            Status randomResult = new Random().nextBoolean() ? target : Status.FAILED;
+            Event transition = new Event(transitional, System.currentTimeMillis());
+            if (eventStore.appendIf(end, transition, new Event(randomResult, System.currentTimeMillis()))) {
+                out.println(progressMessage);
+                out.println("Status: " + randomResult.name());
+                return;
+            }
+        }
+    }
 
-        if (eventsFile.createNewFile()) {
-            objectMapper.writeValue(eventsFile, Collections.emptyList());
+    /**
+     * Streams the matching events to the visitor straight from the store; only a sorted history is collected first,
+     * into primitive {@link EventColumns}.
+     */
+    private void filterEvents(long from, long to, String sort, String status, EventVisitor visitor) throws IOException {
+        EventQuery query = new EventQuery(
+                from != -1 ? from : Long.MIN_VALUE,
+                to != -1 ? to : Long.MAX_VALUE,
+                status != null ? Status.valueOf(status) : null);
+
+        if (!"asc".equals(sort) && !"desc".equals(sort)) {
+            eventStore.scan(query, visitor);
+            return;
         }
 
-        return objectMapper.readValue(eventsFile, new TypeReference<>() {
-        });
+        EventColumns events = new EventColumns();
+        eventStore.scan(query, events);
+        events.sort(sort.equals("desc"));
+        events.scan(EventQuery.ALL, visitor);
     }
 }
@@ -10,10 +10,17 @@ import java.io.IOException;
 @Component
 @RequiredArgsConstructor
 public class CmdRunner implements CommandLineRunner {
+    static final String DAEMON_COMMAND = "daemon";
+
     private final Client client;
+    private final EventDaemon eventDaemon;
 
     @Override
     public void run(String... args) throws ParseException, IOException {
-        client.run(args);
+        if (args.length > 0 && args[0].equals(DAEMON_COMMAND)) {
+            eventDaemon.serve();
+        } else {
+            client.run(DaemonClient.commandArgs(args));
+        }
     }
 }
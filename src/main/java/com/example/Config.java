@@ -1,16 +1,46 @@
 package com.example;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 import java.io.File;
+import java.nio.file.Path;
 
 @Configuration
 public class Config {
     static final String EVENTS_JSON_FILENAME = "events.json";
+    static final String PARTITIONED_BACKEND = "partitioned";
 
     @Bean
     public File eventsFile() {
         return new File(EVENTS_JSON_FILENAME);
     }
+
+    @Bean
+    public EventStore eventStore(File eventsFile,
+                                 @Value("${events.store:auto}") String backend,
+                                 @Value("${events.fsync:os}") String fsync,
+                                 @Value("${events.partitions.dir:events" + PartitionedEventStore.EXTENSION + "}") String partitionsDir,
+                                 @Value("${events.partitions.granularity:day}") String granularity) {
+        if (backend.equals(PARTITIONED_BACKEND)) {
+            return new PartitionedEventStore(new File(partitionsDir),
+                    PartitionedEventStore.Granularity.parse(granularity), Durability.parse(fsync));
+        }
+        return EventStore.open(backend, eventsFile, Durability.parse(fsync));
+    }
+
+    @Bean
+    public RetentionPolicy retentionPolicy(@Value("${events.retention.max-age:}") String maxAge,
+                                           @Value("${events.retention.max-events:}") String maxEvents,
+                                           @Value("${events.retention.downsample-after:}") String downsampleAfter) {
+        return RetentionPolicy.parse(maxAge, maxEvents, downsampleAfter);
+    }
+
+    @Bean
+    public EventDaemon eventDaemon(Client client,
+                                   @Value("${" + DaemonClient.SOCKET_PROPERTY + ":" + DaemonClient.DEFAULT_SOCKET + "}") String socket,
+                                   @Value("${events.retention.interval:}") String compactionInterval) {
+        return new EventDaemon(client, Path.of(socket), RetentionPolicy.duration(compactionInterval));
+    }
 }
@@ -0,0 +1,190 @@
+package com.example;
+
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.ParseException;
+
+import java.io.*;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.OptionalInt;
+import java.util.Properties;
+
+/**
+ * Thin client for {@link EventDaemon}. It needs nothing but the JDK and commons-cli, so {@link App} can use
+ * it before deciding whether to start Spring at all.
+ */
+final class DaemonClient {
+    static final String SOCKET_PROPERTY = "events.socket";
+    static final String DEFAULT_SOCKET = "events.sock";
+
+    private static final String SOCKET_OPTION = "--" + SOCKET_PROPERTY + "=";
+
+    private DaemonClient() {
+    }
+
+    /**
+     * The socket of the daemon, found where Spring looks for {@value #SOCKET_PROPERTY} when it starts the daemon,
+     * in the same order: a {@code --events.socket=} argument, a system property, an environment variable such as
+     * {@code EVENTS_SOCKET}, then {@code application.properties} in {@code ./config}, in the working directory,
+     * and on the classpath. Profiles, YAML files and {@code spring.config.location} are not consulted.
+     */
+    static Path socketPath(String[] args) throws IOException {
+        for (String arg : args) {
+            if (arg.startsWith(SOCKET_OPTION)) {
+                return Path.of(arg.substring(SOCKET_OPTION.length()));
+            }
+        }
+
+        String socket = System.getProperty(SOCKET_PROPERTY);
+        String variable = SOCKET_PROPERTY.replace('.', '_');
+        for (String name : List.of(SOCKET_PROPERTY, variable, variable.toUpperCase(Locale.ROOT))) {
+            socket = socket != null ? socket : System.getenv(name);
+        }
+        for (String location : List.of("config/application.properties", "application.properties")) {
+            Path file = Path.of(location);
+            socket = socket != null || !Files.isRegularFile(file) ? socket : property(Files.newInputStream(file));
+        }
+        for (String location : List.of("/config/application.properties", "/application.properties")) {
+            socket = socket != null ? socket : property(DaemonClient.class.getResourceAsStream(location));
+        }
+        return Path.of(socket != null ? socket : DEFAULT_SOCKET);
+    }
+
+    /**
+     * The command line without the {@code --events.socket=} arguments, which are for Spring and this class, not
+     * for the command's parser.
+     */
+    static String[] commandArgs(String[] args) {
+        return Arrays.stream(args).filter(arg -> !arg.startsWith(SOCKET_OPTION)).toArray(String[]::new);
+    }
+
+    /**
+     * The socket set in a properties file, or null if the file is missing or does not set it.
+     */
+    private static String property(InputStream in) throws IOException {
+        if (in == null) {
+            return null;
+        }
+        try (in) {
+            Properties properties = new Properties();
+            properties.load(in);
+            return properties.getProperty(SOCKET_PROPERTY);
+        }
+    }
+
+    /**
+     * Runs a command line on the daemon, if one is listening, over one connection. A {@code batch} is read here,
+     * once connected, and its commands are pipelined to the daemon, since the daemon cannot read this process's
+     * input.
+     */
+    static OptionalInt run(Path socketPath, String[] args) throws IOException, ParseException {
+        SocketChannel channel = connect(socketPath);
+        if (channel == null) {
+            return OptionalInt.empty();
+        }
+        if (args.length == 0 || !args[0].equals(Client.BATCH_COMMAND)) {
+            return forward(channel, Collections.singletonList(args), System.out, System.err);
+        }
+
+        List<String[]> commands;
+        try {
+            String file = new DefaultParser().parse(Client.options(Client.BATCH_COMMAND), args).getOptionValue("file");
+            try (BufferedReader reader = BatchScript.open(file)) {
+                commands = BatchScript.readAll(reader);
+            }
+        } catch (IOException | ParseException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        PrintStream out = new PrintStream(new BufferedOutputStream(System.out, 1 << 16), false);
+        OptionalInt status = forward(channel, commands, out, System.err);
+        out.flush();
+        return status;
+    }
+
+    /**
+     * Runs the command on the daemon listening on {@code socketPath}, copying its output to {@code out} or
+     * {@code err}, and returns the exit status; empty if no daemon is listening.
+     */
+    static OptionalInt forward(Path socketPath, String[] args, PrintStream out, PrintStream err) throws IOException {
+        return forward(socketPath, Collections.singletonList(args), out, err);
+    }
+
+    /**
+     * Pipelines the commands over one connection: they are all sent without waiting for responses, which are
+     * printed as they arrive, in order. The exit status is 1 if any command failed.
+     */
+    static OptionalInt forward(Path socketPath, List<String[]> commands, PrintStream out, PrintStream err) throws IOException {
+        SocketChannel channel = connect(socketPath);
+        return channel != null ? forward(channel, commands, out, err) : OptionalInt.empty();
+    }
+
+    /**
+     * Pipelines the commands over the connected channel, and closes it.
+     */
+    private static OptionalInt forward(SocketChannel channel, List<String[]> commands, PrintStream out, PrintStream err) throws IOException {
+        try (channel;
+             DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+             DataOutputStream requests = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)))) {
+            Thread sender = Thread.ofVirtual().name("event-daemon-sender").start(() -> {
+                try {
+                    for (String[] command : commands) {
+                        DaemonProtocol.writeRequest(requests, command);
+                    }
+                    requests.flush();
+                } catch (IOException e) {
+                    // The daemon closed the connection; reading the responses reports it.
+                }
+            });
+
+            int status = 0;
+            for (int i = 0; i < commands.size(); i++) {
+                if (!DaemonProtocol.readResponse(in, out, err)) {
+                    status = 1;
+                }
+            }
+            out.flush();
+            err.flush();
+            sender.join();
+            return OptionalInt.of(status);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the daemon");
+        }
+    }
+
+    static boolean isListening(Path socketPath) throws IOException {
+        SocketChannel channel = connect(socketPath);
+        if (channel == null) {
+            return false;
+        }
+        channel.close();
+        return true;
+    }
+
+    /**
+     * Connects to the socket, or returns null if it does not exist or nobody is listening on it any more.
+     */
+    private static SocketChannel connect(Path socketPath) throws IOException {
+        if (!Files.exists(socketPath)) {
+            return null;
+        }
+
+        SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX);
+        try {
+            channel.connect(UnixDomainSocketAddress.of(socketPath));
+            return channel;
+        } catch (IOException e) {
+            channel.close();
+            return null;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.example;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Framing between the daemon and its clients. A request is an argument count followed by each argument as a
+ * length-prefixed UTF-8 string. A response is a run of frames, each a type byte and a length-prefixed chunk of
+ * at most {@value #MAX_CHUNK} bytes: {@link #OUTPUT} frames carry the command's output as it is produced, and an
+ * {@link #OK} or {@link #ERROR} frame, the latter with the error message, ends it. Neither side ever holds more
+ * than a chunk of output. Requests may be pipelined: responses come back in request order. Writers leave
+ * flushing to the caller.
+ */
+final class DaemonProtocol {
+    static final byte OK = 0;
+    static final byte ERROR = 1;
+    static final byte OUTPUT = 2;
+    static final int MAX_CHUNK = 1 << 16;
+
+    private static final int MAX_ARGS = 256;
+    private static final int MAX_ARG_BYTES = 1 << 16;
+
+    private DaemonProtocol() {
+    }
+
+    static void writeRequest(DataOutputStream out, String... args) throws IOException {
+        out.writeInt(args.length);
+        for (String arg : args) {
+            writeBytes(out, arg.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Reads the next request, or returns null if the client closed the connection between requests.
+     */
+    static String[] readRequest(DataInputStream in) throws IOException {
+        int count;
+        try {
+            count = in.readInt();
+        } catch (EOFException e) {
+            return null;
+        }
+        if (count < 0 || count > MAX_ARGS) {
+            throw new IOException("Malformed request: " + count + " arguments");
+        }
+
+        String[] args = new String[count];
+        for (int i = 0; i < count; i++) {
+            args[i] = new String(readBytes(in, MAX_ARG_BYTES), StandardCharsets.UTF_8);
+        }
+        return args;
+    }
+
+    /**
+     * A stream that sends what is written to it as {@link #OUTPUT} frames, one whenever a chunk fills up or the
+     * stream is flushed. Closing it does not close {@code out}.
+     */
+    static OutputStream outputFrames(DataOutputStream out) {
+        return new OutputStream() {
+            private final byte[] chunk = new byte[MAX_CHUNK];
+            private int length;
+
+            @Override
+            public void write(int b) throws IOException {
+                if (length == chunk.length) {
+                    flush();
+                }
+                chunk[length++] = (byte) b;
+            }
+
+            @Override
+            public void write(byte[] bytes, int offset, int count) throws IOException {
+                while (count > 0) {
+                    if (length == chunk.length) {
+                        flush();
+                    }
+                    int copied = Math.min(count, chunk.length - length);
+                    System.arraycopy(bytes, offset, chunk, length, copied);
+                    length += copied;
+                    offset += copied;
+                    count -= copied;
+                }
+            }
+
+            @Override
+            public void flush() throws IOException {
+                if (length > 0) {
+                    out.writeByte(OUTPUT);
+                    out.writeInt(length);
+                    out.write(chunk, 0, length);
+                    length = 0;
+                }
+            }
+        };
+    }
+
+    /**
+     * Ends a response with {@link #OK} and no message, or {@link #ERROR} and a message cut to one chunk.
+     */
+    static void writeEnd(DataOutputStream out, byte status, byte[] message) throws IOException {
+        out.writeByte(status);
+        writeBytes(out, Arrays.copyOf(message, Math.min(message.length, MAX_CHUNK)));
+    }
+
+    /**
+     * Copies the output of the next response to {@code out} chunk by chunk, and its error message, if any, to
+     * {@code err}; returns whether the command succeeded.
+     */
+    static boolean readResponse(DataInputStream in, OutputStream out, OutputStream err) throws IOException {
+        while (true) {
+            byte type = in.readByte();
+            byte[] bytes = readBytes(in, MAX_CHUNK);
+            switch (type) {
+                case OUTPUT -> out.write(bytes);
+                case OK -> {
+                    return true;
+                }
+                case ERROR -> {
+                    err.write(bytes);
+                    return false;
+                }
+                default -> throw new IOException("Malformed frame: type " + type);
+            }
+        }
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static byte[] readBytes(DataInputStream in, int maxLength) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > maxLength) {
+            throw new IOException("Malformed frame: length " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,44 @@
+package com.example;
+
+/**
+ * When appended events are forced to disk: after every append ({@code always}), at most every N
+ * milliseconds ({@code 100ms}), after every N records ({@code 1000records}), or whenever the OS
+ * flushes its page cache ({@code os}).
+ */
+public record Durability(Mode mode, long every) {
+    public static final Durability ALWAYS = new Durability(Mode.ALWAYS, 1);
+    public static final Durability OS = new Durability(Mode.OS, 0);
+
+    public enum Mode {
+        ALWAYS,
+        INTERVAL,
+        RECORDS,
+        OS
+    }
+
+    public static Durability parse(String value) {
+        String policy = value.trim().toLowerCase();
+        try {
+            if (policy.equals("always")) {
+                return ALWAYS;
+            } else if (policy.equals("os")) {
+                return OS;
+            } else if (policy.endsWith("ms")) {
+                return new Durability(Mode.INTERVAL, positive(policy.substring(0, policy.length() - 2)));
+            } else if (policy.endsWith("records")) {
+                return new Durability(Mode.RECORDS, positive(policy.substring(0, policy.length() - 7)));
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid fsync policy: " + value, e);
+        }
+        throw new IllegalArgumentException("Unknown fsync policy: " + value);
+    }
+
+    private static long positive(String number) {
+        long value = Long.parseLong(number.trim());
+        if (value <= 0) {
+            throw new NumberFormatException("Must be positive: " + number);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,88 @@
+package com.example;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Events of a log parsed once per process and kept as {@link EventColumns}, together with the file's identity,
+ * length and modification time as of the last read. When the file has only grown, just the records after the
+ * cached ones are parsed and added; a file that is shorter than what was parsed, replaced, or rewritten at the
+ * same length is parsed again from the start.
+ */
+final class EventCache {
+    /**
+     * Parses the records from {@code offset} on and returns the offset just past the last complete one.
+     */
+    @FunctionalInterface
+    interface Reader {
+        long read(long offset, RecordVisitor visitor) throws IOException;
+    }
+
+    private final File file;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private EventColumns events;
+    private Object fileKey;
+    private long length;
+    private FileTime modified;
+    private long offset;
+
+    EventCache(File file) {
+        this.file = file;
+    }
+
+    boolean isEmpty() {
+        lock.lock();
+        try {
+            return events == null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Brings the cache up to date with the file and returns the cached events. The returned columns are not
+     * affected by later refreshes.
+     */
+    EventColumns refresh(Reader reader) throws IOException {
+        lock.lock();
+        try {
+            BasicFileAttributes attributes;
+            try {
+                attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+            } catch (NoSuchFileException e) {
+                events = null;
+                return new EventColumns();
+            }
+
+            boolean sameFile = events != null && Objects.equals(attributes.fileKey(), fileKey) && attributes.size() >= offset;
+            if (sameFile && attributes.size() == length && attributes.lastModifiedTime().equals(modified)) {
+                return events.prefix();
+            }
+            if (!sameFile || attributes.size() == length) {
+                events = new EventColumns();
+                offset = 0;
+            }
+
+            EventColumns parsed = events;
+            try {
+                offset = reader.read(offset, (recordOffset, status, timestamp) -> parsed.visit(status, timestamp));
+            } catch (IOException | RuntimeException e) {
+                events = null;
+                throw e;
+            }
+            fileKey = attributes.fileKey();
+            length = attributes.size();
+            modified = attributes.lastModifiedTime();
+            return events.prefix();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
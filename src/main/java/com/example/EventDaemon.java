@@ -0,0 +1,209 @@
+package com.example;
+
+import lombok.RequiredArgsConstructor;
+
+import java.io.*;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves {@link Client} commands over a Unix domain socket, so repeated invocations reuse one JVM and one
+ * open {@link EventStore} instead of starting Spring and reopening the events file each time.
+ * <p>
+ * Every connection runs on virtual threads: one reads requests as fast as the client pipelines them, another
+ * runs them one at a time in arrival order and writes the responses, flushing whenever it catches up.
+ * Given a compaction interval, the daemon also applies the configured retention in the background. Only the
+ * user running the daemon can connect to its socket.
+ */
+@RequiredArgsConstructor
+public class EventDaemon implements Closeable {
+    static final int MAX_PIPELINED = 128;
+    static final int ACCEPT_BACKLOG = 4096;
+
+    private static final String[] END = new String[0];
+
+    private final Client client;
+    private final Path socketPath;
+    private final Duration compactionInterval;
+
+    private volatile ServerSocketChannel server;
+
+    public EventDaemon(Client client, Path socketPath) {
+        this(client, socketPath, null);
+    }
+
+    /**
+     * Listens until {@link #close()} is called or the process is stopped; the socket file is removed on exit.
+     */
+    public void serve() throws IOException {
+        if (DaemonClient.isListening(socketPath)) {
+            throw new IllegalStateException("A daemon is already listening on " + socketPath);
+        }
+        Files.deleteIfExists(socketPath);
+        client.cacheScans();
+
+        ExecutorService connections = Executors.newVirtualThreadPerTaskExecutor();
+        try (ServerSocketChannel channel = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+            server = channel;
+            bind(channel);
+            socketPath.toFile().deleteOnExit();
+            if (compactionInterval != null) {
+                connections.execute(this::compactPeriodically);
+            }
+
+            while (channel.isOpen()) {
+                SocketChannel connection = channel.accept();
+                connections.execute(() -> handle(connection));
+            }
+        } catch (ClosedChannelException e) {
+            // Closed by close().
+        } finally {
+            connections.shutdownNow();
+            Files.deleteIfExists(socketPath);
+        }
+    }
+
+    /**
+     * Binds the socket in a new directory only the owner can enter, makes it owner-only, and only then moves it to
+     * {@link #socketPath}, so no other user can connect in between. File systems without POSIX permissions get the
+     * socket bound in place.
+     */
+    private void bind(ServerSocketChannel channel) throws IOException {
+        Path directory;
+        try {
+            directory = Files.createTempDirectory(socketPath.toAbsolutePath().getParent(), ".events-daemon",
+                    PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+        } catch (UnsupportedOperationException e) {
+            channel.bind(UnixDomainSocketAddress.of(socketPath), ACCEPT_BACKLOG);
+            return;
+        }
+
+        Path bound = directory.resolve(socketPath.getFileName());
+        try {
+            channel.bind(UnixDomainSocketAddress.of(bound), ACCEPT_BACKLOG);
+            Files.setPosixFilePermissions(bound, PosixFilePermissions.fromString("rw-------"));
+            Files.move(bound, socketPath, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(bound);
+            Files.delete(directory);
+        }
+    }
+
+    /**
+     * Stops accepting connections and interrupts the ones in progress.
+     */
+    @Override
+    public void close() throws IOException {
+        ServerSocketChannel channel = server;
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    /**
+     * Applies the client's retention every {@link #compactionInterval} until interrupted; commands are served
+     * meanwhile.
+     */
+    private void compactPeriodically() {
+        while (true) {
+            try {
+                Thread.sleep(compactionInterval);
+                client.compact();
+            } catch (InterruptedException e) {
+                return;
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Compaction failed: " + e);
+            }
+        }
+    }
+
+    private void handle(SocketChannel connection) {
+        BlockingQueue<String[]> pending = new ArrayBlockingQueue<>(MAX_PIPELINED);
+
+        try (connection;
+             DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(connection)));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(connection)))) {
+            Thread responder = Thread.ofVirtual().name("event-daemon-responder").start(() -> respond(pending, out));
+            try {
+                String[] args;
+                while ((args = DaemonProtocol.readRequest(in)) != null) {
+                    if (!enqueue(pending, args, responder)) {
+                        return;
+                    }
+                }
+            } finally {
+                enqueue(pending, END, responder);
+                responder.join();
+            }
+        } catch (IOException e) {
+            // The client went away mid-request; nothing to answer.
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Queues a request, waiting while the pipeline is full; false if the responder has stopped.
+     */
+    private static boolean enqueue(BlockingQueue<String[]> pending, String[] args, Thread responder) throws InterruptedException {
+        while (!pending.offer(args, 100, TimeUnit.MILLISECONDS)) {
+            if (!responder.isAlive()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void respond(BlockingQueue<String[]> pending, DataOutputStream out) {
+        try {
+            String[] args;
+            while ((args = pending.take()) != END) {
+                execute(args, out);
+                if (pending.isEmpty()) {
+                    out.flush();
+                }
+            }
+            out.flush();
+        } catch (IOException e) {
+            // The client stopped reading; the reader notices and closes the connection.
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Runs a command, streaming its output in chunks. Whatever it throws, errors included, is answered with an
+     * error frame after the output it produced, so the client is never left waiting.
+     */
+    private void execute(String[] args, DataOutputStream out) throws IOException {
+        PrintStream printer = new PrintStream(DaemonProtocol.outputFrames(out), false, StandardCharsets.UTF_8);
+        byte status = DaemonProtocol.OK;
+        String message = "";
+        try {
+            if (args.length > 0 && args[0].equals(Client.BATCH_COMMAND)) {
+                throw new IllegalArgumentException("Send the commands of a batch to the daemon one by one");
+            }
+            client.run(printer, args);
+        } catch (Throwable e) {
+            status = DaemonProtocol.ERROR;
+            message = e.getClass().getSimpleName() + ": " + e.getMessage() + System.lineSeparator();
+        }
+        printer.flush();
+        DaemonProtocol.writeEnd(out, status, message.getBytes(StandardCharsets.UTF_8));
+    }
+}
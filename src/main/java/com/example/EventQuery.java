@@ -0,0 +1,9 @@
+package com.example;
+
+public record EventQuery(long from, long to, Status status) {
+    public static final EventQuery ALL = new EventQuery(Long.MIN_VALUE, Long.MAX_VALUE, null);
+
+    public boolean matches(Status eventStatus, long timestamp) {
+        return timestamp >= from && timestamp <= to && (status == null || status == eventStatus);
+    }
+}
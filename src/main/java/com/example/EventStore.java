@@ -0,0 +1,131 @@
+package com.example;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.Optional;
+
+public interface EventStore extends Closeable {
+    void append(Event event) throws IOException;
+
+    /**
+     * Opaque position of the end of the store. It grows with every append and compaction does not lower it, so
+     * a position once passed never comes back.
+     */
+    long end() throws IOException;
+
+    /**
+     * Appends the events in order, but only if nothing has been appended since {@link #end()} returned
+     * {@code expectedEnd}. The check and the write happen under one lock, shared with other processes.
+     */
+    boolean appendIf(long expectedEnd, Event... events) throws IOException;
+
+    void scan(EventQuery query, EventVisitor visitor) throws IOException;
+
+    /**
+     * Visits events from the newest to the oldest, reading only as far back as the visitor asks for.
+     */
+    void scanBackward(EventVisitor visitor) throws IOException;
+
+    /**
+     * Removes the events {@code retention} does not keep and returns how many were removed. Reads and appends
+     * from other threads and processes are not held up while the bulk of the store is rewritten.
+     */
+    long compact(Retention retention) throws IOException;
+
+    /**
+     * Lets the store keep the events it reads in memory across scans, for processes that serve many commands.
+     * Without it, scans stream from the store, so a one-shot {@code history} never holds the whole log on the heap.
+     */
+    default void cacheScans() {
+    }
+
+    default Optional<Event> latest() throws IOException {
+        Event[] latest = new Event[1];
+        scanBackward((status, timestamp) -> {
+            latest[0] = new Event(status, timestamp);
+            return false;
+        });
+        return Optional.ofNullable(latest[0]);
+    }
+
+    default Optional<Event> latestByStatus(Status... statuses) throws IOException {
+        int mask = 0;
+        for (Status status : statuses) {
+            mask |= 1 << status.ordinal();
+        }
+
+        int statusMask = mask;
+        Event[] latest = new Event[1];
+        scanBackward((status, timestamp) -> {
+            if ((statusMask & 1 << status.ordinal()) != 0) {
+                latest[0] = new Event(status, timestamp);
+                return false;
+            }
+            return true;
+        });
+        return Optional.ofNullable(latest[0]);
+    }
+
+    /**
+     * The latest event, or the latest UP/DOWN event when the latest one is FAILED.
+     */
+    default Optional<Event> latestNotFailed() throws IOException {
+        Event[] latest = new Event[1];
+        boolean[] failed = new boolean[1];
+        scanBackward((status, timestamp) -> {
+            if (status == Status.FAILED) {
+                failed[0] = true;
+                return true;
+            }
+            if (failed[0] && status != Status.UP && status != Status.DOWN) {
+                return true;
+            }
+            latest[0] = new Event(status, timestamp);
+            return false;
+        });
+        return Optional.ofNullable(latest[0]);
+    }
+
+    @Override
+    default void close() throws IOException {
+    }
+
+    /**
+     * Opens the backend named by the {@code events.store} property; {@code auto} picks one from the file name.
+     * The JSON and in-memory backends ignore {@code durability}. The {@code partitioned} backend lives in its own
+     * directory, {@code events.partitions.dir}, so {@link Config} opens it, or {@code auto} given that directory.
+     */
+    static EventStore open(String backend, File file, Durability durability) {
+        return switch (backend) {
+            case "auto" -> open(file, durability);
+            case "json" -> new JsonEventStore(file);
+            case "ndjson" -> new NdjsonEventStore(file, durability);
+            case "binary" -> new BinaryEventStore(file, durability);
+            case "segmented" -> new SegmentedEventStore(file, durability);
+            case "memory" -> new InMemoryEventStore();
+            default -> throw new IllegalArgumentException("Unknown event store: " + backend);
+        };
+    }
+
+    static EventStore open(String backend, File file) {
+        return open(backend, file, Durability.OS);
+    }
+
+    static EventStore open(File file) {
+        return open(file, Durability.OS);
+    }
+
+    static EventStore open(File file, Durability durability) {
+        if (file.getName().endsWith(PartitionedEventStore.EXTENSION)) {
+            return new PartitionedEventStore(file, PartitionedEventStore.Granularity.DAY, durability);
+        }
+        if (file.getName().endsWith(SegmentedEventStore.EXTENSION)) {
+            return new SegmentedEventStore(file, durability);
+        }
+        if (file.getName().endsWith(BinaryEventStore.EXTENSION)) {
+            return new BinaryEventStore(file, durability);
+        }
+        return new NdjsonEventStore(file, durability);
+    }
+}
@@ -0,0 +1,12 @@
+package com.example;
+
+import java.io.IOException;
+
+/**
+ * Receives events one at a time without requiring an {@link Event} instance per record.
+ * Returning {@code false} stops the scan.
+ */
+@FunctionalInterface
+public interface EventVisitor {
+    boolean visit(Status status, long timestamp) throws IOException;
+}
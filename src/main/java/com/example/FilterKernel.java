@@ -0,0 +1,31 @@
+package com.example;
+
+/**
+ * Selects the events of a column range that match a query, writing their indices into a selection vector.
+ * <p>
+ * {@link #INSTANCE} is the SIMD kernel when the build has the {@code vector} profile and the JVM runs with
+ * {@code --add-modules jdk.incubator.vector}, otherwise {@link ScalarFilterKernel}.
+ */
+interface FilterKernel {
+    String VECTOR_KERNEL = "com.example.VectorFilterKernel";
+    FilterKernel INSTANCE = load();
+
+    /**
+     * Writes the indices {@code i} in {@code [start, end)} with {@code from <= timestamps[i] <= to} and bit
+     * {@code statuses[i]} set in {@code statusMask} to {@code selection}, in order, and returns how many there are.
+     * {@code selection} must hold {@code end - start} indices.
+     */
+    int select(long[] timestamps, byte[] statuses, int start, int end, long from, long to, int statusMask, int[] selection);
+
+    static int statusMask(Status status) {
+        return status != null ? 1 << status.ordinal() : (1 << Status.values().length) - 1;
+    }
+
+    private static FilterKernel load() {
+        try {
+            return (FilterKernel) Class.forName(VECTOR_KERNEL).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError | UnsupportedOperationException e) {
+            return new ScalarFilterKernel();
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.example;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Forces a channel according to a {@link Durability} policy. Writers take a ticket after writing and
+ * wait for it outside their own lock; one {@link FileChannel#force} covers every write made before it
+ * started, so appends that arrive while a sync is running share the next one. Tickets count records, not
+ * writes, so a batch counts towards a {@code <n>records} policy with each of its records.
+ */
+class GroupCommit implements Closeable {
+    private final FileChannel channel;
+    private final Durability durability;
+    private final ReentrantLock forceLock = new ReentrantLock();
+    private final ScheduledExecutorService timer;
+
+    private long written;
+    private volatile long synced;
+    private volatile IOException failure;
+
+    GroupCommit(FileChannel channel, Durability durability) {
+        this.channel = channel;
+        this.durability = durability;
+
+        if (durability.mode() == Durability.Mode.INTERVAL) {
+            timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "event-store-sync");
+                thread.setDaemon(true);
+                return thread;
+            });
+            timer.scheduleWithFixedDelay(this::syncWritten, durability.every(), durability.every(), TimeUnit.MILLISECONDS);
+        } else {
+            timer = null;
+        }
+    }
+
+    /**
+     * Registers a completed write of {@code records} records; call while still holding the lock that ordered
+     * the write.
+     */
+    synchronized long written(int records) {
+        written += records;
+        return written;
+    }
+
+    /**
+     * Applies the policy to the write with the given ticket; call after releasing the writer's lock.
+     */
+    void sync(long ticket) throws IOException {
+        if (failure != null) {
+            throw new IOException("Background sync failed", failure);
+        }
+
+        switch (durability.mode()) {
+            case ALWAYS -> syncUpTo(ticket);
+            case RECORDS -> {
+                if (ticket - synced >= durability.every()) {
+                    syncUpTo(ticket);
+                }
+            }
+            case INTERVAL, OS -> {
+            }
+        }
+    }
+
+    /**
+     * The ticket of the last write known to be on disk.
+     */
+    long synced() {
+        return synced;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (timer != null) {
+            timer.shutdownNow();
+        }
+        if (durability.mode() != Durability.Mode.OS && channel.isOpen()) {
+            syncUpTo(currentTicket());
+        }
+    }
+
+    private void syncUpTo(long ticket) throws IOException {
+        forceLock.lock();
+        try {
+            if (synced >= ticket) {
+                return;
+            }
+            long target = currentTicket();
+            channel.force(false);
+            synced = target;
+        } finally {
+            forceLock.unlock();
+        }
+    }
+
+    private synchronized long currentTicket() {
+        return written;
+    }
+
+    private void syncWritten() {
+        try {
+            syncUpTo(currentTicket());
+        } catch (IOException e) {
+            if (channel.isOpen()) {
+                failure = e;
+            }
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.example;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+/**
+ * Writes {@code history} output straight into one reusable buffer that is drained to the output in large
+ * chunks, so the output sees one write per {@link #BUFFER_SIZE} bytes.
+ * <p>
+ * The text format ({@code Status: UP, Timestamp: 2024-11-07T07:02:39}) is identical to printing
+ * {@code LocalDateTime.ofEpochSecond(timestamp / 1000, 0, ZoneOffset.UTC)} with {@code println}; its date part
+ * is formatted once per day and the time of day digit by digit, so rendering an event allocates nothing.
+ * The machine-readable formats carry the epoch millis: NDJSON lines as in the events file, CSV with a
+ * {@code status,timestamp} header, and a binary event log as read by {@link BinaryEventStore}.
+ */
+class HistoryRenderer implements Flushable, EventVisitor {
+    static final int BUFFER_SIZE = 1 << 16;
+
+    enum Format {
+        TEXT, NDJSON, CSV, BIN;
+
+        static Format parse(String name) {
+            if (name == null) {
+                return TEXT;
+            }
+            for (Format format : values()) {
+                if (format.name().equalsIgnoreCase(name)) {
+                    return format;
+                }
+            }
+            throw new IllegalArgumentException("Unknown history format: " + name);
+        }
+    }
+
+    private static final long SECONDS_PER_DAY = 86_400;
+    private static final byte[] STATUS_PREFIX = ascii("Status: ");
+    private static final byte[] TIMESTAMP_PREFIX = ascii(", Timestamp: ");
+    private static final byte[] LINE_SEPARATOR = ascii(System.lineSeparator());
+    private static final byte[] NDJSON_PREFIX = ascii("{\"status\":\"");
+    private static final byte[] NDJSON_TIMESTAMP = ascii("\",\"timestamp\":");
+    private static final byte[] CSV_HEADER = ascii("status,timestamp\n");
+    private static final byte[] LONG_MIN_VALUE = ascii(Long.toString(Long.MIN_VALUE));
+    private static final int MAX_RECORD_SIZE = 64;
+    private static final byte[][] STATUS_NAMES = new byte[Status.values().length][];
+
+    static {
+        for (Status status : Status.values()) {
+            STATUS_NAMES[status.ordinal()] = ascii(status.name());
+        }
+    }
+
+    private final OutputStream out;
+    private final Format format;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+    private long day = Long.MIN_VALUE;
+    private byte[] date;
+    private long count;
+
+    HistoryRenderer(OutputStream out) {
+        this(out, Format.TEXT);
+    }
+
+    /**
+     * Starts the output with the format's header, if it has one.
+     */
+    HistoryRenderer(OutputStream out, Format format) {
+        this.out = out;
+        this.format = format;
+
+        if (format == Format.CSV) {
+            buffer.put(CSV_HEADER);
+        } else if (format == Format.BIN) {
+            BinaryEventStore.putHeader(buffer);
+        }
+    }
+
+    @Override
+    public boolean visit(Status status, long timestamp) throws IOException {
+        render(status, timestamp);
+        return true;
+    }
+
+    void render(Status status, long timestamp) throws IOException {
+        if (buffer.remaining() < MAX_RECORD_SIZE) {
+            drain();
+        }
+
+        switch (format) {
+            case TEXT -> renderText(status, timestamp);
+            case NDJSON -> {
+                buffer.put(NDJSON_PREFIX).put(STATUS_NAMES[status.ordinal()]).put(NDJSON_TIMESTAMP);
+                putDecimal(timestamp);
+                buffer.put((byte) '}').put((byte) '\n');
+            }
+            case CSV -> {
+                buffer.put(STATUS_NAMES[status.ordinal()]).put((byte) ',');
+                putDecimal(timestamp);
+                buffer.put((byte) '\n');
+            }
+            case BIN -> BinaryEventStore.putRecord(buffer, status, timestamp);
+        }
+        count++;
+    }
+
+    private void renderText(Status status, long timestamp) {
+        long epochSecond = timestamp / 1000;
+        long epochDay = Math.floorDiv(epochSecond, SECONDS_PER_DAY);
+        int secondOfDay = (int) Math.floorMod(epochSecond, SECONDS_PER_DAY);
+        if (epochDay != day) {
+            day = epochDay;
+            date = ascii(LocalDate.ofEpochDay(epochDay).toString());
+        }
+
+        buffer.put(STATUS_PREFIX).put(STATUS_NAMES[status.ordinal()]).put(TIMESTAMP_PREFIX).put(date).put((byte) 'T');
+        putTwoDigits(secondOfDay / 3600);
+        buffer.put((byte) ':');
+        putTwoDigits(secondOfDay / 60 % 60);
+        if (secondOfDay % 60 != 0) {
+            buffer.put((byte) ':');
+            putTwoDigits(secondOfDay % 60);
+        }
+        buffer.put(LINE_SEPARATOR);
+    }
+
+    /**
+     * Number of events rendered so far.
+     */
+    long count() {
+        return count;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        drain();
+        out.flush();
+    }
+
+    private void drain() throws IOException {
+        out.write(buffer.array(), 0, buffer.position());
+        buffer.clear();
+    }
+
+    private void putDecimal(long value) {
+        if (value == Long.MIN_VALUE) {
+            buffer.put(LONG_MIN_VALUE);
+            return;
+        }
+        if (value < 0) {
+            buffer.put((byte) '-');
+            value = -value;
+        }
+
+        byte[] array = buffer.array();
+        int start = buffer.position();
+        do {
+            buffer.put((byte) ('0' + value % 10));
+            value /= 10;
+        } while (value != 0);
+        for (int i = start, j = buffer.position() - 1; i < j; i++, j--) {
+            byte digit = array[i];
+            array[i] = array[j];
+            array[j] = digit;
+        }
+    }
+
+    private void putTwoDigits(int value) {
+        buffer.put((byte) ('0' + value / 10)).put((byte) ('0' + value % 10));
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,57 @@
+package com.example;
+
+import java.io.IOException;
+
+/**
+ * Keeps events on the heap only, in {@link EventColumns}; nothing survives the process. Useful as a baseline
+ * and in tests.
+ */
+public class InMemoryEventStore implements EventStore {
+    private EventColumns events = new EventColumns();
+    private long appended;
+
+    @Override
+    public synchronized void append(Event event) {
+        events.add(event.status(), event.timestamp());
+        appended++;
+    }
+
+    /**
+     * The number of events ever appended, which compaction does not lower.
+     */
+    @Override
+    public synchronized long end() {
+        return appended;
+    }
+
+    @Override
+    public synchronized boolean appendIf(long expectedEnd, Event... events) {
+        if (appended != expectedEnd) {
+            return false;
+        }
+        for (Event event : events) {
+            this.events.add(event.status(), event.timestamp());
+        }
+        appended += events.length;
+        return true;
+    }
+
+    @Override
+    public synchronized long compact(Retention retention) throws IOException {
+        EventColumns kept = new EventColumns();
+        events.scan(EventQuery.ALL, (status, timestamp) -> !retention.keep(status, timestamp) || kept.visit(status, timestamp));
+        long removed = events.size() - kept.size();
+        events = kept;
+        return removed;
+    }
+
+    @Override
+    public synchronized void scan(EventQuery query, EventVisitor visitor) throws IOException {
+        events.scan(query, visitor);
+    }
+
+    @Override
+    public synchronized void scanBackward(EventVisitor visitor) throws IOException {
+        events.scanBackward(visitor);
+    }
+}
@@ -0,0 +1,49 @@
+package com.example;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Streams the events of a JSON-array file through Jackson's token parser, one event at a time,
+ * so memory use does not depend on the size of the file.
+ */
+final class JsonArrayReader {
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private JsonArrayReader() {
+    }
+
+    static void read(File file, EventVisitor visitor) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(file)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IOException("Expected a JSON array of events in " + file);
+            }
+
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                Status status = null;
+                long timestamp = 0;
+
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.currentName();
+                    parser.nextToken();
+                    switch (field) {
+                        case "status" -> status = Status.valueOf(parser.getText());
+                        case "timestamp" -> timestamp = parser.getLongValue();
+                        default -> parser.skipChildren();
+                    }
+                }
+
+                if (status == null) {
+                    throw new IOException("Event without status in " + file + " at " + parser.currentLocation());
+                }
+                if (!visitor.visit(status, timestamp)) {
+                    return;
+                }
+            }
+        }
+    }
+}
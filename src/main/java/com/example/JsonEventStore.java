@@ -0,0 +1,119 @@
+package com.example;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileLock;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The original storage: a single JSON array that is read and rewritten on every append.
+ */
+public class JsonEventStore implements EventStore {
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final long ANY_END = -1;
+
+    private final File file;
+    private final StoreLock lock;
+    private final AppendCounter appended;
+    private final ReentrantLock mutex = new ReentrantLock();
+
+    public JsonEventStore(File file) {
+        this.file = file;
+        this.lock = new StoreLock(file);
+        this.appended = new AppendCounter(file);
+    }
+
+    @Override
+    public void append(Event event) throws IOException {
+        write(ANY_END, event);
+    }
+
+    /**
+     * The number of events ever appended; the file length would go down with compaction.
+     */
+    @Override
+    public long end() throws IOException {
+        return appended.get();
+    }
+
+    @Override
+    public boolean appendIf(long expectedEnd, Event... events) throws IOException {
+        return write(expectedEnd, events);
+    }
+
+    @Override
+    public void close() throws IOException {
+        mutex.lock();
+        try {
+            lock.close();
+        } finally {
+            mutex.unlock();
+        }
+    }
+
+    /**
+     * Rewrites the array under the lock, as every append does.
+     */
+    @Override
+    public long compact(Retention retention) throws IOException {
+        mutex.lock();
+        try (FileLock ignored = lock.lock()) {
+            List<Event> events = readAll();
+            List<Event> kept = new ArrayList<>();
+            for (Event event : events) {
+                if (retention.keep(event.status(), event.timestamp())) {
+                    kept.add(event);
+                }
+            }
+            if (kept.size() < events.size()) {
+                OBJECT_MAPPER.writeValue(file, kept);
+            }
+            return events.size() - kept.size();
+        } finally {
+            mutex.unlock();
+        }
+    }
+
+    @Override
+    public void scan(EventQuery query, EventVisitor visitor) throws IOException {
+        if (file.exists()) {
+            JsonArrayReader.read(file, (status, timestamp) -> !query.matches(status, timestamp) || visitor.visit(status, timestamp));
+        }
+    }
+
+    @Override
+    public void scanBackward(EventVisitor visitor) throws IOException {
+        EventColumns events = new EventColumns();
+        scan(EventQuery.ALL, events);
+        events.scanBackward(visitor);
+    }
+
+    private boolean write(long expectedEnd, Event... events) throws IOException {
+        mutex.lock();
+        try (FileLock ignored = lock.lock()) {
+            if (expectedEnd != ANY_END && appended.get() != expectedEnd) {
+                return false;
+            }
+            List<Event> all = readAll();
+            all.addAll(Arrays.asList(events));
+            OBJECT_MAPPER.writeValue(file, all);
+            appended.add(events.length);
+            return true;
+        } finally {
+            mutex.unlock();
+        }
+    }
+
+    private List<Event> readAll() throws IOException {
+        List<Event> events = new ArrayList<>();
+        if (file.exists()) {
+            JsonArrayReader.read(file, (status, timestamp) -> events.add(new Event(status, timestamp)));
+        }
+        return events;
+    }
+}
@@ -0,0 +1,454 @@
+package com.example;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.LongStream;
+
+/**
+ * Base for append-only logs addressed by byte offset. A {@link StoreSnapshot} kept next to the log is
+ * replaced on every append, so the current status is known without reading the history; a
+ * {@link SparseIndex} and a {@link StatusIndex} narrow down range and status queries. Only the log itself
+ * is forced to disk according to the store's {@link Durability}; the sidecars are rebuilt from it when lost.
+ * Writers in all processes take a {@link StoreLock} for the duration of the write and its sidecar updates, and
+ * threads of one process a {@link ReentrantLock} before it: a monitor would pin the carrier of a virtual thread
+ * that waits for another process.
+ */
+public abstract class LogEventStore implements EventStore {
+    static final String SNAPSHOT_SUFFIX = ".snapshot";
+    static final String COMPACT_SUFFIX = ".compact";
+    static final String COMPACTING_SUFFIX = ".compacting";
+
+    private static final int COMPACT_BATCH = 4096;
+    private static final int CATCH_UP_PASSES = 3;
+
+    private static final long ANY_END = -1;
+
+    protected final File file;
+    private final File snapshotFile;
+    private final SparseIndex sparseIndex;
+    private final StatusIndex statusIndex;
+
+    private final AppendChannel appendChannel;
+    private final StoreLock lock;
+    private final ReentrantLock mutex = new ReentrantLock();
+    private final ReentrantLock compaction = new ReentrantLock();
+    private final StoreLock compactionLock;
+    private final EventCache cache;
+
+    private volatile boolean cacheScans;
+
+    protected LogEventStore(File file, Durability durability) {
+        this.file = file;
+        this.appendChannel = new AppendChannel(durability, this::recover,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.snapshotFile = new File(file.getPath() + SNAPSHOT_SUFFIX);
+        this.sparseIndex = new SparseIndex(file);
+        this.statusIndex = new StatusIndex(file);
+        this.lock = new StoreLock(file);
+        this.compactionLock = new StoreLock(new File(file.getPath() + COMPACTING_SUFFIX));
+        this.cache = new EventCache(file);
+    }
+
+    /**
+     * Writes the record at the end of the channel and returns the offset it was written at.
+     */
+    protected abstract long appendRecord(FileChannel channel, Event event) throws IOException;
+
+    /**
+     * Length of the intact part of the log: everything after it is a torn or corrupt tail to cut off
+     * before appending. Must read only a bounded part of the tail.
+     */
+    protected abstract long recover(FileChannel channel) throws IOException;
+
+    /**
+     * Visits the complete records that start at or after {@code offset}, oldest first, and returns the offset
+     * just past the last complete record. Records that have no stable offset yet are reported at offset -1.
+     */
+    protected abstract long scanFrom(long offset, RecordVisitor visitor) throws IOException;
+
+    /**
+     * Visits the records starting at each of the given offsets, in order.
+     */
+    protected abstract void readAt(PrimitiveIterator.OfLong offsets, RecordVisitor visitor) throws IOException;
+
+    /**
+     * A store in the same format on another file, which compaction fills and then moves into place.
+     */
+    protected abstract LogEventStore sibling(File file);
+
+    /**
+     * Runs under the store lock before every write, before the append channel is opened.
+     */
+    protected void prepareAppend() throws IOException {
+    }
+
+    /**
+     * Whether every record has a stable offset, so the indexes cover the whole log.
+     */
+    protected boolean indexed() throws IOException {
+        return true;
+    }
+
+    @Override
+    public void append(Event event) throws IOException {
+        write(ANY_END, event);
+    }
+
+    /**
+     * The number of records ever appended, kept in the snapshot: unlike the log's length it does not go down when
+     * compaction shrinks the log, so a stale {@link #appendIf} cannot match again. A snapshot lost outside of
+     * compaction is rebuilt with the records the log holds.
+     */
+    @Override
+    public long end() throws IOException {
+        return snapshot().appended();
+    }
+
+    @Override
+    public boolean appendIf(long expectedEnd, Event... events) throws IOException {
+        return write(expectedEnd, events);
+    }
+
+    /**
+     * Copies the kept records into a sibling store next to the log without holding the lock, including its
+     * snapshot and indexes, then catches up with the records appended meanwhile. Only the last few are copied
+     * under the lock, after which the store's sidecars are dropped and the sibling's files take their place,
+     * the log first and the snapshot last; a reader that catches the swap halfway, or a crash in the middle of
+     * it, finds no snapshot and has the sidecars rebuilt from the log.
+     * Compactions of one store, in this process or another, run one at a time, as they share the sibling.
+     */
+    @Override
+    public long compact(Retention retention) throws IOException {
+        compaction.lock();
+        try (FileLock ignored = compactionLock.lock()) {
+            return compactExclusively(retention);
+        } finally {
+            compaction.unlock();
+        }
+    }
+
+    private long compactExclusively(Retention retention) throws IOException {
+        mutex.lock();
+        try (FileLock ignored = lock.lock()) {
+            prepareAppend();
+        } finally {
+            mutex.unlock();
+        }
+        long end = snapshot().offset();
+        File compacted = new File(file.getPath() + COMPACT_SUFFIX);
+        deleteStoreFiles(compacted);
+
+        try {
+            long removed;
+            try (LogEventStore target = sibling(compacted)) {
+                removed = copy(0, end, target, retention);
+                if (removed == 0) {
+                    return 0;
+                }
+                for (int pass = 0; pass < CATCH_UP_PASSES; pass++) {
+                    long written = snapshot().offset();
+                    if (written <= end) {
+                        break;
+                    }
+                    copy(end, written, target, Retention.KEEP_ALL);
+                    end = written;
+                }
+
+                mutex.lock();
+                try (FileLock ignored = lock.lock()) {
+                    StoreSnapshot current = replay();
+                    if (current.offset() < end) {
+                        return 0;
+                    }
+                    copy(end, current.offset(), target, Retention.KEEP_ALL);
+                    target.close();
+                    File targetSnapshot = new File(compacted.getPath() + SNAPSHOT_SUFFIX);
+                    StoreSnapshot.read(targetSnapshot).withAppended(current.appended()).write(targetSnapshot);
+                    try (FileChannel channel = FileChannel.open(compacted.toPath(), StandardOpenOption.WRITE)) {
+                        channel.force(true);
+                    }
+
+                    appendChannel.close();
+                    clearIndexes();
+                    replaceWith(compacted);
+                } finally {
+                    mutex.unlock();
+                }
+            }
+            return removed;
+        } finally {
+            deleteStoreFiles(compacted);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        mutex.lock();
+        try (lock; compactionLock) {
+            appendChannel.close();
+        } finally {
+            mutex.unlock();
+        }
+    }
+
+    @Override
+    public void cacheScans() {
+        cacheScans = true;
+    }
+
+    /**
+     * With {@link #cacheScans()}, answers from the {@link EventCache} once a full scan has filled it, so repeated
+     * history queries in one process parse only what was appended since; until then, and in one-shot processes,
+     * queries the indexes can narrow down read just the records they need. They stop past the end of the range
+     * only while the snapshot says no record was ever older than one before it.
+     */
+    @Override
+    public void scan(EventQuery query, EventVisitor visitor) throws IOException {
+        boolean fullScan = query.from() == Long.MIN_VALUE && query.status() == null;
+        if (cacheScans && (fullScan || !cache.isEmpty()) && indexed()) {
+            cache.refresh(this::scanFrom).scan(query, visitor);
+            return;
+        }
+
+        boolean ordered = indexed() && snapshot().ordered();
+        long start = sparseIndex.seek(query.from());
+        RecordVisitor bounded = (offset, status, timestamp) -> {
+            if (timestamp > query.to() && ordered) {
+                return false;
+            }
+            return !query.matches(status, timestamp) || visitor.visit(status, timestamp);
+        };
+
+        if (query.status() != null && indexed()) {
+            readAt(statusIndex.offsets(query.status(), start), bounded);
+        } else {
+            scanFrom(start, bounded);
+        }
+    }
+
+    @Override
+    public Optional<Event> latestByStatus(Status... statuses) throws IOException {
+        if (!indexed()) {
+            return EventStore.super.latestByStatus(statuses);
+        }
+
+        snapshot();
+        long latest = -1;
+        for (Status status : statuses) {
+            latest = Math.max(latest, statusIndex.last(status));
+        }
+        if (latest < 0) {
+            return Optional.empty();
+        }
+
+        Event[] event = new Event[1];
+        readAt(LongStream.of(latest).iterator(), (offset, status, timestamp) -> {
+            event[0] = new Event(status, timestamp);
+            return false;
+        });
+        return Optional.ofNullable(event[0]);
+    }
+
+    @Override
+    public Optional<Event> latestNotFailed() throws IOException {
+        return Optional.ofNullable(snapshot().current());
+    }
+
+    /**
+     * Reads the snapshot; if records were appended after it was written, brings it and the indexes up to
+     * date under the store lock by replaying only those records.
+     */
+    public StoreSnapshot snapshot() throws IOException {
+        StoreSnapshot snapshot = StoreSnapshot.read(snapshotFile);
+        if (snapshot.offset() == file.length()) {
+            return snapshot;
+        }
+
+        mutex.lock();
+        try (FileLock ignored = lock.lock()) {
+            return replay();
+        } finally {
+            mutex.unlock();
+        }
+    }
+
+    private boolean write(long expectedEnd, Event... events) throws IOException {
+        GroupCommit commit;
+        long ticket;
+
+        mutex.lock();
+        try (FileLock ignored = lock.lock()) {
+            prepareAppend();
+            FileChannel channel = appendChannel.open(file.toPath());
+            StoreSnapshot snapshot = replay();
+            if (expectedEnd != ANY_END && snapshot.appended() != expectedEnd) {
+                return false;
+            }
+            if (channel.size() > snapshot.offset()) {
+                channel.truncate(snapshot.offset());
+            }
+
+            for (Event event : events) {
+                long offset = appendRecord(channel, event);
+                indexRecord(snapshot, offset, event.status(), event.timestamp());
+                snapshot = snapshot.apply(event.status(), event.timestamp(), channel.size());
+            }
+            flushIndexes();
+            commit = appendChannel.groupCommit();
+            ticket = commit.written(events.length);
+            snapshot.write(snapshotFile);
+        } finally {
+            discardIndexes();
+            mutex.unlock();
+        }
+        commit.sync(ticket);
+        return true;
+    }
+
+    /**
+     * Brings the snapshot and the indexes up to date; the caller holds the store lock. Without a snapshot the
+     * indexes are rebuilt from the start, as they may belong to a log that was replaced.
+     */
+    private StoreSnapshot replay() throws IOException {
+        StoreSnapshot snapshot = StoreSnapshot.read(snapshotFile);
+        long length = file.length();
+
+        if (snapshot.offset() == length) {
+            return snapshot;
+        }
+        if (snapshot.offset() > length || snapshot.offset() == 0) {
+            snapshot = StoreSnapshot.EMPTY.withAppended(snapshot.appended());
+            clearIndexes();
+        }
+
+        StoreSnapshot[] replayed = {snapshot};
+        long end;
+        try {
+            end = scanFrom(snapshot.offset(), (offset, status, timestamp) -> {
+                indexRecord(replayed[0], offset, status, timestamp);
+                replayed[0] = replayed[0].apply(status, timestamp, length);
+                return true;
+            });
+            flushIndexes();
+        } finally {
+            discardIndexes();
+        }
+        if (end == snapshot.offset()) {
+            return snapshot;
+        }
+        snapshot = replayed[0].withOffset(end);
+        snapshot.write(snapshotFile);
+        return snapshot;
+    }
+
+    private void flushIndexes() throws IOException {
+        sparseIndex.flush();
+        statusIndex.flush();
+    }
+
+    /**
+     * Forgets index entries not yet flushed, so a failed batch leaves none behind for the next one.
+     */
+    private void discardIndexes() {
+        sparseIndex.discard();
+        statusIndex.discard();
+    }
+
+    /**
+     * Drops the snapshot and the indexes; the next access rebuilds them from the log.
+     */
+    protected void clearIndexes() throws IOException {
+        Files.deleteIfExists(snapshotFile.toPath());
+        sparseIndex.clear();
+        statusIndex.clear();
+    }
+
+    /**
+     * Appends the records in {@code [from, to)} that the retention keeps to {@code target}, in batches, and
+     * returns how many it did not keep.
+     */
+    private long copy(long from, long to, LogEventStore target, Retention retention) throws IOException {
+        List<Event> batch = new ArrayList<>(COMPACT_BATCH);
+        long[] removed = {0};
+        scanFrom(from, (offset, status, timestamp) -> {
+            if (offset >= to) {
+                return false;
+            }
+            if (!retention.keep(status, timestamp)) {
+                removed[0]++;
+            } else if (batch.add(new Event(status, timestamp)) && batch.size() == COMPACT_BATCH) {
+                target.write(ANY_END, batch.toArray(Event[]::new));
+                batch.clear();
+            }
+            return true;
+        });
+        if (!batch.isEmpty()) {
+            target.write(ANY_END, batch.toArray(Event[]::new));
+        }
+        return removed[0];
+    }
+
+    /**
+     * Moves the log of the store at {@code source} over this store's, then its indexes, then its snapshot:
+     * the snapshot vouches for the log and the indexes, so it must not arrive before them.
+     */
+    private void replaceWith(File source) throws IOException {
+        File[] files = storeFiles(source);
+        Arrays.sort(files, Comparator.comparing((File sidecar) -> !sidecar.getName().equals(source.getName()))
+                .thenComparing(sidecar -> sidecar.getName().endsWith(SNAPSHOT_SUFFIX)));
+        for (File sidecar : files) {
+            String suffix = sidecar.getName().substring(source.getName().length());
+            if (!suffix.equals(StoreLock.SUFFIX)) {
+                Files.move(sidecar.toPath(), new File(file.getPath() + suffix).toPath(),
+                        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+        }
+    }
+
+    /**
+     * Deletes a log and all of its sidecars, including its lock file.
+     */
+    static void deleteStoreFiles(File log) throws IOException {
+        for (File sidecar : storeFiles(log)) {
+            Files.deleteIfExists(sidecar.toPath());
+        }
+    }
+
+    private static File[] storeFiles(File log) {
+        File directory = log.getAbsoluteFile().getParentFile();
+        File[] files = directory.listFiles((dir, name) -> name.equals(log.getName()) || name.startsWith(log.getName() + "."));
+        return files != null ? files : new File[0];
+    }
+
+    protected static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        int start = buffer.position();
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position() - start) < 0) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Indexes the record that follows {@code snapshot}. Sparse entries carry the newest timestamp so far rather
+     * than the record's, so every record before an entry is at most as new as the entry even when the log is not
+     * ordered.
+     */
+    private void indexRecord(StoreSnapshot snapshot, long offset, Status status, long timestamp) throws IOException {
+        if (offset < 0) {
+            return;
+        }
+        if (snapshot.count() % SparseIndex.INTERVAL == 0) {
+            sparseIndex.add(Math.max(snapshot.newest(), timestamp), offset);
+        }
+        statusIndex.add(status, offset);
+    }
+}
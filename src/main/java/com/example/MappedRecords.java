@@ -0,0 +1,76 @@
+package com.example;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32C;
+
+/**
+ * Read-only view of fixed-width records mapped in regions of at most {@link #REGION_BYTES} bytes,
+ * so files larger than 2 GB can be addressed by record number. Records longer than
+ * {@link BinaryEventStore#RECORD_SIZE} carry a CRC32C of the status and timestamp after them.
+ */
+class MappedRecords {
+    static final long REGION_BYTES = 1L << 30;
+
+    private final MappedByteBuffer[] regions;
+    private final ByteBuffer[] checksumViews;
+    private final CRC32C crc = new CRC32C();
+    private final int recordSize;
+    private final long recordsPerRegion;
+    private final long count;
+
+    MappedRecords(FileChannel channel, long dataOffset, int recordSize) throws IOException {
+        this.recordSize = recordSize;
+        this.recordsPerRegion = REGION_BYTES / recordSize;
+        this.count = Math.max(0, (channel.size() - dataOffset) / recordSize);
+
+        int regionCount = (int) ((count + recordsPerRegion - 1) / recordsPerRegion);
+        this.regions = new MappedByteBuffer[regionCount];
+        this.checksumViews = new ByteBuffer[regionCount];
+        for (int i = 0; i < regionCount; i++) {
+            long first = i * recordsPerRegion;
+            long records = Math.min(recordsPerRegion, count - first);
+            regions[i] = channel.map(FileChannel.MapMode.READ_ONLY, dataOffset + first * recordSize, records * recordSize);
+            checksumViews[i] = regions[i].duplicate();
+        }
+    }
+
+    long count() {
+        return count;
+    }
+
+    int recordSize() {
+        return recordSize;
+    }
+
+    byte status(long index) {
+        return regions[(int) (index / recordsPerRegion)].get(position(index));
+    }
+
+    long timestamp(long index) {
+        return regions[(int) (index / recordsPerRegion)].getLong(position(index) + 1);
+    }
+
+    /**
+     * Whether the record's checksum matches; records without a checksum are always valid.
+     */
+    boolean valid(long index) {
+        if (recordSize == BinaryEventStore.RECORD_SIZE) {
+            return true;
+        }
+
+        int region = (int) (index / recordsPerRegion);
+        int position = position(index);
+        ByteBuffer view = checksumViews[region];
+        view.limit(position + BinaryEventStore.RECORD_SIZE).position(position);
+        crc.reset();
+        crc.update(view);
+        return (int) crc.getValue() == regions[region].getInt(position + BinaryEventStore.RECORD_SIZE);
+    }
+
+    private int position(long index) {
+        return (int) (index % recordsPerRegion) * recordSize;
+    }
+}
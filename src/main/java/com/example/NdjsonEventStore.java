@@ -0,0 +1,304 @@
+package com.example;
+
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.PrimitiveIterator;
+
+/**
+ * Append-only event log with one JSON object per line. Adding an event writes only the new line;
+ * a legacy JSON-array file is converted once, on the first append. Each line carries in {@code crc} the
+ * CRC32C of the event's binary record (see {@link BinaryEventStore#putRecord}), so a damaged line that still
+ * parses is skipped like one that does not; lines written before checksums were added have none and are
+ * trusted as they are.
+ */
+public class NdjsonEventStore extends LogEventStore {
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final int BLOCK_SIZE = 8192;
+    private static final int LINE_SIZE = 128;
+    private static final int TAIL_LINES = 4096;
+
+    public NdjsonEventStore(File file) {
+        this(file, Durability.OS);
+    }
+
+    public NdjsonEventStore(File file, Durability durability) {
+        super(file, durability);
+    }
+
+    @Override
+    protected void prepareAppend() throws IOException {
+        if (isLegacyArray()) {
+            migrateLegacyArray();
+            clearIndexes();
+        }
+    }
+
+    @Override
+    protected LogEventStore sibling(File file) {
+        return new NdjsonEventStore(file, Durability.OS);
+    }
+
+    @Override
+    protected long appendRecord(FileChannel channel, Event event) throws IOException {
+        long offset = channel.size();
+        channel.write(ByteBuffer.wrap(toLine(event)), offset);
+        return offset;
+    }
+
+    @Override
+    protected long recover(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size == 0 || isLegacyArray()) {
+            return size;
+        }
+
+        long end = lineStart(channel, size);
+        for (int i = 0; i < TAIL_LINES && end > 0; i++) {
+            long lastLine = lineStart(channel, end - 1);
+            byte[] line = new byte[(int) (end - 1 - lastLine)];
+            readFully(channel, ByteBuffer.wrap(line), lastLine);
+            if (parse(line, 0, line.length) != null) {
+                break;
+            }
+            end = lastLine;
+        }
+        return end;
+    }
+
+    @Override
+    protected long scanFrom(long offset, RecordVisitor visitor) throws IOException {
+        if (!file.exists()) {
+            return 0;
+        }
+
+        if (isLegacyArray()) {
+            JsonArrayReader.read(file, (status, timestamp) -> visitor.visit(-1, status, timestamp));
+            return file.length();
+        }
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            byte[] block = new byte[BLOCK_SIZE];
+            long blockStart = offset;
+            int filled = 0;
+
+            while (true) {
+                if (filled == block.length) {
+                    block = Arrays.copyOf(block, block.length * 2);
+                }
+                int read = channel.read(ByteBuffer.wrap(block, filled, block.length - filled), blockStart + filled);
+                if (read <= 0) {
+                    break;
+                }
+                filled += read;
+
+                int lineStart = 0;
+                for (int i = 0; i < filled; i++) {
+                    if (block[i] == '\n') {
+                        if (!visitLine(block, lineStart, i, blockStart + lineStart, visitor)) {
+                            return blockStart + i + 1;
+                        }
+                        lineStart = i + 1;
+                    }
+                }
+                System.arraycopy(block, lineStart, block, 0, filled - lineStart);
+                filled -= lineStart;
+                blockStart += lineStart;
+            }
+            return blockStart;
+        }
+    }
+
+    @Override
+    protected void readAt(PrimitiveIterator.OfLong offsets, RecordVisitor visitor) throws IOException {
+        if (!file.exists()) {
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            byte[] line = new byte[LINE_SIZE];
+
+            while (offsets.hasNext()) {
+                long offset = offsets.nextLong();
+                int filled = 0;
+                int end = -1;
+
+                while (end < 0) {
+                    if (filled == line.length) {
+                        line = Arrays.copyOf(line, line.length * 2);
+                    }
+                    int read = channel.read(ByteBuffer.wrap(line, filled, line.length - filled), offset + filled);
+                    if (read <= 0) {
+                        return;
+                    }
+                    for (int i = filled; i < filled + read && end < 0; i++) {
+                        if (line[i] == '\n') {
+                            end = i;
+                        }
+                    }
+                    filled += read;
+                }
+
+                if (!visitLine(line, 0, end, offset, visitor)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void scanBackward(EventVisitor visitor) throws IOException {
+        if (!file.exists()) {
+            return;
+        }
+
+        if (isLegacyArray()) {
+            EventColumns events = new EventColumns();
+            JsonArrayReader.read(file, events);
+            events.scanBackward(visitor);
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long position = lineStart(channel, channel.size());
+            byte[] tail = new byte[0];
+
+            while (position > 0) {
+                int length = (int) Math.min(BLOCK_SIZE, position);
+                position -= length;
+
+                byte[] block = new byte[length + tail.length];
+                ByteBuffer buffer = ByteBuffer.wrap(block, 0, length);
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer, position + buffer.position()) < 0) {
+                        throw new EOFException("Events file truncated while reading: " + file);
+                    }
+                }
+                System.arraycopy(tail, 0, block, length, tail.length);
+
+                int lineEnd = block.length;
+                for (int i = block.length - 1; i >= 0; i--) {
+                    if (block[i] == '\n') {
+                        if (!visitLine(block, i + 1, lineEnd, position + i + 1, (offset, status, timestamp) -> visitor.visit(status, timestamp))) {
+                            return;
+                        }
+                        lineEnd = i;
+                    }
+                }
+                tail = Arrays.copyOf(block, lineEnd);
+            }
+            visitLine(tail, 0, tail.length, 0, (offset, status, timestamp) -> visitor.visit(status, timestamp));
+        }
+    }
+
+    @Override
+    protected boolean indexed() throws IOException {
+        return !isLegacyArray();
+    }
+
+    /**
+     * Start of the line containing the byte before {@code end}, i.e. the offset just past the last newline
+     * before {@code end}, or 0 if there is none.
+     */
+    private static long lineStart(FileChannel channel, long end) throws IOException {
+        ByteBuffer block = ByteBuffer.allocate(LINE_SIZE);
+        long position = end;
+
+        while (position > 0) {
+            int length = (int) Math.min(LINE_SIZE, position);
+            position -= length;
+            block.clear().limit(length);
+            readFully(channel, block, position);
+            for (int i = length - 1; i >= 0; i--) {
+                if (block.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Visits one line; blank lines and lines that do not hold a valid event or fail their checksum (a corrupt
+     * write) are skipped.
+     */
+    private static boolean visitLine(byte[] bytes, int start, int end, long offset, RecordVisitor visitor) throws IOException {
+        Event event = parse(bytes, start, end);
+        return event == null || visitor.visit(offset, event.status(), event.timestamp());
+    }
+
+    private static Event parse(byte[] bytes, int start, int end) {
+        int first = start;
+        while (first < end && Character.isWhitespace(bytes[first])) {
+            first++;
+        }
+        if (first == end) {
+            return null;
+        }
+
+        try {
+            Line line = OBJECT_MAPPER.readValue(bytes, first, end - first, Line.class);
+            if (line.status() == null || line.crc() != null && line.crc() != checksum(line.status(), line.timestamp())) {
+                return null;
+            }
+            return new Event(line.status(), line.timestamp());
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private boolean isLegacyArray() throws IOException {
+        if (!file.exists()) {
+            return false;
+        }
+
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+            int c;
+            while ((c = in.read()) != -1) {
+                if (!Character.isWhitespace(c)) {
+                    return c == '[';
+                }
+            }
+            return false;
+        }
+    }
+
+    private void migrateLegacyArray() throws IOException {
+        File tmp = new File(file.getPath() + ".tmp");
+
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(tmp))) {
+            JsonArrayReader.read(file, (status, timestamp) -> {
+                out.write(toLine(new Event(status, timestamp)));
+                return true;
+            });
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static byte[] toLine(Event event) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream(80);
+        OBJECT_MAPPER.writeValue(line, new Line(event.status(), event.timestamp(), checksum(event.status(), event.timestamp())));
+        line.write('\n');
+        return line.toByteArray();
+    }
+
+    private static long checksum(Status status, long timestamp) {
+        ByteBuffer record = ByteBuffer.allocate(BinaryEventStore.CHECKED_RECORD_SIZE);
+        BinaryEventStore.putRecord(record, status, timestamp);
+        return Integer.toUnsignedLong(record.getInt(BinaryEventStore.RECORD_SIZE));
+    }
+
+    /**
+     * An event as stored on one line; {@code crc} is null on lines written before checksums were added.
+     */
+    @JsonPropertyOrder({"status", "timestamp", "crc"})
+    private record Line(Status status, long timestamp, Long crc) {
+    }
+}
@@ -0,0 +1,315 @@
+package com.example;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Events split by UTC day or month into {@link BinaryEventStore} partitions named after their period, such as
+ * {@code 2024-11-07.bin} or {@code 2024-11.bin}. A range query only opens the partitions whose period overlaps
+ * it, and old history is dropped by deleting whole partitions. The granularity only decides where new events
+ * go; partitions of either kind are read. After a change of granularity a month partition and the day
+ * partitions inside it hold interleaved events, which reads merge by timestamp.
+ */
+public class PartitionedEventStore implements EventStore {
+    static final String EXTENSION = ".partitions";
+
+    private static final long ANY_END = -1;
+    private static final int OPEN_PARTITIONS = 4;
+
+    public enum Granularity {
+        DAY, MONTH;
+
+        static Granularity parse(String name) {
+            for (Granularity granularity : values()) {
+                if (granularity.name().equalsIgnoreCase(name)) {
+                    return granularity;
+                }
+            }
+            throw new IllegalArgumentException("Unknown partition granularity: " + name);
+        }
+
+        String partitionName(long timestamp) {
+            LocalDate date = LocalDate.ofEpochDay(Math.floorDiv(timestamp, 86_400_000L));
+            return (this == DAY ? date.toString() : YearMonth.from(date).toString()) + BinaryEventStore.EXTENSION;
+        }
+    }
+
+    /**
+     * A partition file and the timestamps its name admits, {@code from} and {@code to} inclusive.
+     */
+    record Partition(File file, long from, long to) {
+        static Partition parse(File file) {
+            String period = file.getName().substring(0, file.getName().length() - BinaryEventStore.EXTENSION.length());
+            try {
+                if (period.length() == "yyyy-MM".length()) {
+                    YearMonth month = YearMonth.parse(period);
+                    return new Partition(file, startOf(month.atDay(1)), startOf(month.plusMonths(1).atDay(1)) - 1);
+                }
+                LocalDate day = LocalDate.parse(period);
+                return new Partition(file, startOf(day), startOf(day.plusDays(1)) - 1);
+            } catch (DateTimeParseException e) {
+                return null;
+            }
+        }
+
+        boolean overlaps(long from, long to) {
+            return this.from <= to && this.to >= from;
+        }
+
+        private static long startOf(LocalDate date) {
+            return date.atStartOfDay().toEpochSecond(ZoneOffset.UTC) * 1000;
+        }
+    }
+
+    private final File directory;
+    private final Granularity granularity;
+    private final Durability durability;
+    private final StoreLock lock;
+    private final AppendCounter appended;
+    private final ReentrantLock mutex = new ReentrantLock();
+    private final Map<String, BinaryEventStore> stores = new LinkedHashMap<>(16, 0.75f, true);
+
+    public PartitionedEventStore(File directory) {
+        this(directory, Granularity.DAY, Durability.OS);
+    }
+
+    public PartitionedEventStore(File directory, Granularity granularity, Durability durability) {
+        this.directory = directory;
+        this.granularity = granularity;
+        this.durability = durability;
+        this.lock = new StoreLock(directory);
+        this.appended = new AppendCounter(directory);
+    }
+
+    @Override
+    public void append(Event event) throws IOException {
+        write(ANY_END, event);
+    }
+
+    /**
+     * The number of events ever appended; the partitions' total length would go down with compaction.
+     */
+    @Override
+    public long end() throws IOException {
+        return appended.get();
+    }
+
+    @Override
+    public boolean appendIf(long expectedEnd, Event... events) throws IOException {
+        return write(expectedEnd, events);
+    }
+
+    /**
+     * Deletes the partitions that lie wholly before the retention's cut-off and compacts the older ones it only
+     * thins out, oldest first; newer partitions are not touched.
+     */
+    @Override
+    public long compact(Retention retention) throws IOException {
+        long removed = 0;
+        for (Partition partition : partitions()) {
+            if (retention.keepsFrom(partition.from())) {
+                break;
+            }
+            removed += retention.dropsUntil(partition.to()) ? drop(partition) : store(partition.file()).compact(retention);
+        }
+        return removed;
+    }
+
+    @Override
+    public void close() throws IOException {
+        mutex.lock();
+        try (lock) {
+            List<BinaryEventStore> open;
+            synchronized (stores) {
+                open = new ArrayList<>(stores.values());
+                stores.clear();
+            }
+            for (BinaryEventStore store : open) {
+                store.close();
+            }
+        } finally {
+            mutex.unlock();
+        }
+    }
+
+    @Override
+    public void scan(EventQuery query, EventVisitor visitor) throws IOException {
+        boolean[] stopped = new boolean[1];
+        EventVisitor stopping = stopping(visitor, stopped);
+
+        for (List<Partition> group : groups()) {
+            if (group.getFirst().from() > query.to()) {
+                return;
+            }
+            if (group.size() == 1) {
+                if (group.getFirst().overlaps(query.from(), query.to())) {
+                    store(group.getFirst().file()).scan(query, stopping);
+                }
+            } else {
+                EventColumns events = new EventColumns();
+                for (Partition partition : group) {
+                    if (partition.overlaps(query.from(), query.to())) {
+                        store(partition.file()).scan(query, events);
+                    }
+                }
+                events.sort(false);
+                events.scan(EventQuery.ALL, stopping);
+            }
+            if (stopped[0]) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void scanBackward(EventVisitor visitor) throws IOException {
+        boolean[] stopped = new boolean[1];
+        EventVisitor stopping = stopping(visitor, stopped);
+
+        List<List<Partition>> groups = groups();
+        for (int i = groups.size() - 1; i >= 0 && !stopped[0]; i--) {
+            List<Partition> group = groups.get(i);
+            if (group.size() == 1) {
+                store(group.getFirst().file()).scanBackward(stopping);
+            } else {
+                EventColumns events = new EventColumns();
+                for (Partition partition : group) {
+                    store(partition.file()).scan(EventQuery.ALL, events);
+                }
+                events.sort(false);
+                events.scanBackward(stopping);
+            }
+        }
+    }
+
+    /**
+     * Asks the partitions from the newest on, each answering from its status index; of overlapping partitions,
+     * the latest of their answers wins.
+     */
+    @Override
+    public Optional<Event> latestByStatus(Status... statuses) throws IOException {
+        List<List<Partition>> groups = groups();
+        for (int i = groups.size() - 1; i >= 0; i--) {
+            Optional<Event> latest = Optional.empty();
+            for (Partition partition : groups.get(i)) {
+                Optional<Event> event = store(partition.file()).latestByStatus(statuses);
+                if (event.isPresent() && (latest.isEmpty() || event.get().timestamp() >= latest.get().timestamp())) {
+                    latest = event;
+                }
+            }
+            if (latest.isPresent()) {
+                return latest;
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Partitions by the start of their period, so a month partition comes before the day partitions inside it.
+     */
+    List<Partition> partitions() {
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(BinaryEventStore.EXTENSION));
+        List<Partition> partitions = new ArrayList<>();
+        if (files != null) {
+            for (File file : files) {
+                Partition partition = Partition.parse(file);
+                if (partition != null) {
+                    partitions.add(partition);
+                }
+            }
+        }
+        partitions.sort(Comparator.comparingLong(Partition::from).thenComparingLong(Partition::to));
+        return partitions;
+    }
+
+    /**
+     * Partitions in time order, with the ones whose periods overlap in one group: events of different groups
+     * never interleave, events of one group may.
+     */
+    List<List<Partition>> groups() {
+        List<List<Partition>> groups = new ArrayList<>();
+        long to = Long.MIN_VALUE;
+        for (Partition partition : partitions()) {
+            if (groups.isEmpty() || partition.from() > to) {
+                groups.add(new ArrayList<>());
+            }
+            groups.getLast().add(partition);
+            to = Math.max(to, partition.to());
+        }
+        return groups;
+    }
+
+    private boolean write(long expectedEnd, Event... events) throws IOException {
+        mutex.lock();
+        try (FileLock ignored = lock.lock()) {
+            Files.createDirectories(directory.toPath());
+            if (expectedEnd != ANY_END && appended.get() != expectedEnd) {
+                return false;
+            }
+
+            for (Event event : events) {
+                store(new File(directory, granularity.partitionName(event.timestamp()))).append(event);
+            }
+            appended.add(events.length);
+            return true;
+        } finally {
+            mutex.unlock();
+        }
+    }
+
+    private long drop(Partition partition) throws IOException {
+        mutex.lock();
+        try (FileLock ignored = lock.lock()) {
+            BinaryEventStore store = store(partition.file());
+            long count = store.snapshot().count();
+            store.close();
+            synchronized (stores) {
+                stores.remove(partition.file().getName());
+            }
+            LogEventStore.deleteStoreFiles(partition.file());
+            return count;
+        } finally {
+            mutex.unlock();
+        }
+    }
+
+    /**
+     * The store of a partition. Only the {@value #OPEN_PARTITIONS} used last are kept: each holds open files, and
+     * under an interval {@link Durability} a sync thread, while most partitions are history that is rarely read.
+     * An evicted store is closed; a reader still holding it reopens what it needs.
+     */
+    private BinaryEventStore store(File file) throws IOException {
+        BinaryEventStore store;
+        BinaryEventStore evicted = null;
+        synchronized (stores) {
+            store = stores.computeIfAbsent(file.getName(), name -> new BinaryEventStore(file, durability));
+            if (stores.size() > OPEN_PARTITIONS) {
+                Iterator<BinaryEventStore> eldest = stores.values().iterator();
+                evicted = eldest.next();
+                eldest.remove();
+            }
+        }
+        if (evicted != null) {
+            evicted.close();
+        }
+        return store;
+    }
+
+    private static EventVisitor stopping(EventVisitor visitor, boolean[] stopped) {
+        return (status, timestamp) -> {
+            if (!visitor.visit(status, timestamp)) {
+                stopped[0] = true;
+                return false;
+            }
+            return true;
+        };
+    }
+}
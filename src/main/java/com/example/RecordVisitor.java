@@ -0,0 +1,11 @@
+package com.example;
+
+import java.io.IOException;
+
+/**
+ * Like {@link EventVisitor}, but also receives the byte offset at which the record starts in its log.
+ */
+@FunctionalInterface
+interface RecordVisitor {
+    boolean visit(long offset, Status status, long timestamp) throws IOException;
+}
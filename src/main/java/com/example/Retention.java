@@ -0,0 +1,55 @@
+package com.example;
+
+/**
+ * One compaction's decisions, made by {@link RetentionPolicy#start}: events before {@link #dropBefore()} are
+ * removed, and of the events before {@link #downsampleBefore()} only UP and DOWN events that differ from the
+ * last kept one remain. {@link #keep} must see the events in log order; it tracks the state for down-sampling.
+ */
+public final class Retention {
+    static final Retention KEEP_ALL = new Retention(Long.MIN_VALUE, Long.MIN_VALUE);
+
+    private final long dropBefore;
+    private final long downsampleBefore;
+
+    private Status settled;
+
+    Retention(long dropBefore, long downsampleBefore) {
+        this.dropBefore = dropBefore;
+        this.downsampleBefore = downsampleBefore;
+    }
+
+    long dropBefore() {
+        return dropBefore;
+    }
+
+    long downsampleBefore() {
+        return downsampleBefore;
+    }
+
+    /**
+     * Whether events from {@code timestamp} on are all kept, so a block starting there needs no rewrite.
+     */
+    boolean keepsFrom(long timestamp) {
+        return timestamp >= dropBefore && timestamp >= downsampleBefore;
+    }
+
+    /**
+     * Whether every event up to {@code timestamp} is removed, so a whole block ending there can be deleted.
+     */
+    boolean dropsUntil(long timestamp) {
+        return timestamp < dropBefore;
+    }
+
+    boolean keep(Status status, long timestamp) {
+        if (timestamp < dropBefore) {
+            return false;
+        }
+        if (timestamp < downsampleBefore) {
+            if (status != Status.UP && status != Status.DOWN || status == settled) {
+                return false;
+            }
+            settled = status;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,81 @@
+package com.example;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.format.DateTimeParseException;
+import java.util.Optional;
+
+/**
+ * Which events {@code compact} keeps: none older than {@code maxAge}, at most about the latest {@code maxEvents},
+ * and of those older than {@code downsampleAfter} only the UP and DOWN events that change the server's state.
+ * A null duration or a zero count disables that limit. The latest UP or DOWN event and everything after it are
+ * always kept, so compaction never changes what {@code status} reports.
+ */
+public record RetentionPolicy(Duration maxAge, long maxEvents, Duration downsampleAfter) {
+    public static final RetentionPolicy NONE = new RetentionPolicy(null, 0, null);
+
+    public static RetentionPolicy parse(String maxAge, String maxEvents, String downsampleAfter) {
+        try {
+            long count = maxEvents == null || maxEvents.isBlank() ? 0 : Long.parseLong(maxEvents.trim());
+            if (count < 0) {
+                throw new IllegalArgumentException("Invalid event count: " + maxEvents);
+            }
+            return new RetentionPolicy(duration(maxAge), count, duration(downsampleAfter));
+        } catch (NumberFormatException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid retention: " + e.getMessage(), e);
+        }
+    }
+
+    public boolean isNone() {
+        return maxAge == null && maxEvents == 0 && downsampleAfter == null;
+    }
+
+    /**
+     * Fixes the policy's cut-off timestamps for one compaction of the store, as of {@code now}.
+     */
+    Retention start(EventStore store, long now) throws IOException {
+        Optional<Event> settled = store.latestByStatus(Status.UP, Status.DOWN);
+        Optional<Event> latest = settled.isPresent() ? settled : store.latest();
+        if (latest.isEmpty() || isNone()) {
+            return Retention.KEEP_ALL;
+        }
+        long protectedFrom = latest.get().timestamp();
+
+        long dropBefore = maxAge != null ? now - maxAge.toMillis() : Long.MIN_VALUE;
+        if (maxEvents > 0) {
+            long[] counted = {0, Long.MIN_VALUE};
+            store.scanBackward((status, timestamp) -> {
+                counted[1] = timestamp;
+                return ++counted[0] < maxEvents;
+            });
+            if (counted[0] == maxEvents) {
+                dropBefore = Math.max(dropBefore, counted[1]);
+            }
+        }
+        long downsampleBefore = downsampleAfter != null ? now - downsampleAfter.toMillis() : Long.MIN_VALUE;
+
+        return new Retention(Math.min(dropBefore, protectedFrom), Math.min(downsampleBefore, protectedFrom));
+    }
+
+    /**
+     * {@code 90d}, {@code 12h}, {@code 30m}, {@code 45s}, or an ISO-8601 duration such as {@code P90D}.
+     */
+    static Duration duration(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+
+        String duration = value.trim().toLowerCase();
+        if (duration.startsWith("p")) {
+            return Duration.parse(duration.toUpperCase());
+        }
+        long amount = Long.parseLong(duration.substring(0, duration.length() - 1));
+        return switch (duration.charAt(duration.length() - 1)) {
+            case 'd' -> Duration.ofDays(amount);
+            case 'h' -> Duration.ofHours(amount);
+            case 'm' -> Duration.ofMinutes(amount);
+            case 's' -> Duration.ofSeconds(amount);
+            default -> throw new IllegalArgumentException("Unknown duration unit: " + value);
+        };
+    }
+}
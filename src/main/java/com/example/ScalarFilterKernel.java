@@ -0,0 +1,17 @@
+package com.example;
+
+/**
+ * Portable {@link FilterKernel}: one pass without branches on the match, which the JIT keeps tight.
+ */
+final class ScalarFilterKernel implements FilterKernel {
+    @Override
+    public int select(long[] timestamps, byte[] statuses, int start, int end, long from, long to, int statusMask, int[] selection) {
+        int count = 0;
+        for (int i = start; i < end; i++) {
+            long timestamp = timestamps[i];
+            selection[count] = i;
+            count += timestamp >= from & timestamp <= to & (statusMask >>> statuses[i] & 1) != 0 ? 1 : 0;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,255 @@
+package com.example;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Compressed encoding of sealed segments, in blocks of {@value #BLOCK_SIZE} events. After the {@link SegmentHeader}
+ * comes a directory with each block's lowest and highest timestamp and position, so a range query decodes only
+ * the blocks that overlap it and filters them with {@link FilterKernel#INSTANCE}; a segment of one block, the usual
+ * one for a client that logs a few events a day, has no directory, as the header holds its range. A block holds
+ * its bit width, its statuses, and its timestamps as offsets from the block's lowest one, bit-packed in that width
+ * into as many bytes as the bits need. Statuses are
+ * either packed in {@value #STATUS_BITS} bits each or stored as one byte per run of up to {@value #MAX_RUN} equal
+ * statuses, whichever is smaller: a server going through its start and stop cycle changes status with every
+ * event, one that keeps failing to start does not.
+ */
+final class SegmentCodec {
+    static final int BLOCK_SIZE = 128;
+    static final int STATUS_BITS = 3;
+    static final int MAX_RUN = 1 << Byte.SIZE - STATUS_BITS;
+
+    private static final Status[] STATUSES = Status.values();
+    private static final int STATUS_MASK = (1 << STATUS_BITS) - 1;
+    private static final byte PACKED = 0;
+    private static final byte RUNS = 1;
+    private static final int DIRECTORY_ENTRY_SIZE = 2 * Long.BYTES + Integer.BYTES;
+    private static final int BLOCK_HEADER_SIZE = 3;
+    private static final VarHandle WORDS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    static {
+        if (STATUSES.length > 1 << STATUS_BITS) {
+            throw new ExceptionInInitializerError("Too many statuses for " + STATUS_BITS + " bits");
+        }
+    }
+
+    private SegmentCodec() {
+    }
+
+    /**
+     * The whole segment, header included, holding the events in their order.
+     */
+    static ByteBuffer encode(EventColumns events) {
+        int size = events.size();
+        int blocks = blocks(size);
+        long minTimestamp = Long.MAX_VALUE;
+        long maxTimestamp = Long.MIN_VALUE;
+        long[] statusCounts = new long[STATUSES.length];
+        for (int i = 0; i < size; i++) {
+            minTimestamp = Math.min(minTimestamp, events.timestamp(i));
+            maxTimestamp = Math.max(maxTimestamp, events.timestamp(i));
+            statusCounts[events.status(i).ordinal()]++;
+        }
+
+        int[] positions = new int[blocks + 1];
+        positions[0] = SegmentHeader.SIZE + directorySize(blocks);
+        for (int block = 0; block < blocks; block++) {
+            int start = block * BLOCK_SIZE;
+            int end = Math.min(start + BLOCK_SIZE, size);
+            positions[block + 1] = positions[block] + BLOCK_HEADER_SIZE + statusLength(events, start, end)
+                    + packedBytes(end - start, width(events, start, end));
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(positions[blocks]);
+        new SegmentHeader(size, minTimestamp, maxTimestamp, statusCounts, true).encode(buffer);
+        for (int block = 0; block < blocks; block++) {
+            int start = block * BLOCK_SIZE;
+            int end = Math.min(start + BLOCK_SIZE, size);
+            long min = min(events, start, end);
+            long max = Long.MIN_VALUE;
+            for (int i = start; i < end; i++) {
+                max = Math.max(max, events.timestamp(i));
+            }
+            if (blocks > 1) {
+                buffer.putLong(min).putLong(max).putInt(positions[block]);
+            }
+            putBlock(buffer.duplicate().position(positions[block]), events, start, end, min);
+        }
+        return buffer.position(0);
+    }
+
+    /**
+     * Visits the events of a whole compressed segment, header included, that match the query, in order until the
+     * visitor returns false. Blocks outside the query's range are skipped without being read, so of a mapped
+     * segment only the directory and the overlapping blocks are paged in.
+     */
+    static boolean decode(ByteBuffer segment, SegmentHeader header, EventQuery query, EventVisitor visitor) throws IOException {
+        int statusMask = FilterKernel.statusMask(query.status());
+        long[] timestamps = new long[BLOCK_SIZE];
+        byte[] statuses = new byte[BLOCK_SIZE];
+        long[] words = new long[words(BLOCK_SIZE, Long.SIZE)];
+        byte[] block = new byte[BLOCK_HEADER_SIZE + BLOCK_SIZE + words.length * Long.BYTES];
+        int[] selection = new int[BLOCK_SIZE];
+
+        for (int index = 0, blocks = blocks(header.count()); index < blocks; index++) {
+            int entry = SegmentHeader.SIZE + index * DIRECTORY_ENTRY_SIZE;
+            long min = blocks > 1 ? segment.getLong(entry) : header.minTimestamp();
+            long max = blocks > 1 ? segment.getLong(entry + Long.BYTES) : header.maxTimestamp();
+            if (max < query.from() || min > query.to()) {
+                continue;
+            }
+
+            int count = (int) Math.min(BLOCK_SIZE, header.count() - (long) index * BLOCK_SIZE);
+            int position = blocks > 1 ? segment.getInt(entry + 2 * Long.BYTES) : SegmentHeader.SIZE;
+            int end = index + 1 < blocks ? segment.getInt(entry + DIRECTORY_ENTRY_SIZE + 2 * Long.BYTES) : segment.limit();
+            segment.get(position, block, 0, end - position);
+
+            int width = block[0];
+            int statusLength = block[2] & 0xFF;
+            getStatuses(block, BLOCK_HEADER_SIZE, block[1], count, statuses);
+            for (int i = 0, wordCount = words(count, width); i < wordCount; i++) {
+                words[i] = (long) WORDS.get(block, BLOCK_HEADER_SIZE + statusLength + i * Long.BYTES);
+            }
+            unpack(words, width, min, count, timestamps);
+
+            int selected = FilterKernel.INSTANCE.select(timestamps, statuses, 0, count, query.from(), query.to(), statusMask, selection);
+            for (int i = 0; i < selected; i++) {
+                if (!visitor.visit(STATUSES[statuses[selection[i]]], timestamps[selection[i]])) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Adds offsets of {@code width} bits each to {@code base} without branching: the next word is shifted in by
+     * {@code 64 - shift} bits in two steps, so a shift of zero adds nothing rather than the whole word. The words
+     * past the packed bytes hold whatever the block buffer held before; the mask drops those bits.
+     */
+    private static void unpack(long[] words, int width, long base, int count, long[] values) {
+        long mask = width == Long.SIZE ? -1L : (1L << width) - 1;
+        for (int i = 0; i < count; i++) {
+            int bit = i * width;
+            int word = bit >>> 6;
+            int shift = bit & 63;
+            values[i] = base + ((words[word] >>> shift | words[word + 1] << 1 << 63 - shift) & mask);
+        }
+    }
+
+    private static void putBlock(ByteBuffer buffer, EventColumns events, int start, int end, long min) {
+        int width = width(events, start, end);
+        int statusLength = statusLength(events, start, end);
+        boolean packed = statusLength == packedLength(end - start);
+        buffer.put((byte) width).put(packed ? PACKED : RUNS).put((byte) statusLength);
+
+        if (packed) {
+            byte[] statuses = new byte[statusLength + 1];
+            for (int i = start; i < end; i++) {
+                int bit = (i - start) * STATUS_BITS;
+                int shifted = events.status(i).ordinal() << (bit & 7);
+                statuses[bit >>> 3] |= (byte) shifted;
+                statuses[(bit >>> 3) + 1] |= (byte) (shifted >>> Byte.SIZE);
+            }
+            buffer.put(statuses, 0, statusLength);
+        } else {
+            for (int i = start, run = 0; i < end; i++) {
+                run = i > start && events.status(i) == events.status(i - 1) && run < MAX_RUN ? run + 1 : 1;
+                if (run == 1) {
+                    buffer.put((byte) events.status(i).ordinal());
+                } else {
+                    int last = buffer.position() - 1;
+                    buffer.put(last, (byte) (buffer.get(last) + (1 << STATUS_BITS)));
+                }
+            }
+        }
+
+        long[] words = new long[words(end - start, width)];
+        for (int i = start; i < end; i++) {
+            long offset = events.timestamp(i) - min;
+            int bit = (i - start) * width;
+            words[bit >>> 6] |= offset << (bit & 63);
+            if ((bit & 63) + width > Long.SIZE) {
+                words[(bit >>> 6) + 1] |= offset >>> Long.SIZE - (bit & 63);
+            }
+        }
+        ByteBuffer bytes = ByteBuffer.allocate(words.length * Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        bytes.asLongBuffer().put(words);
+        buffer.put(bytes.array(), 0, packedBytes(end - start, width));
+    }
+
+    private static void getStatuses(byte[] block, int position, byte encoding, int count, byte[] statuses) {
+        if (encoding == PACKED) {
+            for (int i = 0; i < count; i++) {
+                int bit = i * STATUS_BITS;
+                int offset = position + (bit >>> 3);
+                statuses[i] = (byte) (((block[offset] & 0xFF) | (block[offset + 1] & 0xFF) << Byte.SIZE) >>> (bit & 7) & STATUS_MASK);
+            }
+            return;
+        }
+        for (int i = 0; i < count; position++) {
+            int run = ((block[position] & 0xFF) >>> STATUS_BITS) + 1;
+            Arrays.fill(statuses, i, i + run, (byte) (block[position] & STATUS_MASK));
+            i += run;
+        }
+    }
+
+    /**
+     * The length of the block's statuses in the smaller of the two encodings; packed ones win a tie.
+     */
+    private static int statusLength(EventColumns events, int start, int end) {
+        int runs = 0;
+        for (int i = start, run = 0; i < end; i++) {
+            run = i > start && events.status(i) == events.status(i - 1) && run < MAX_RUN ? run + 1 : 1;
+            runs += run == 1 ? 1 : 0;
+        }
+        return Math.min(runs, packedLength(end - start));
+    }
+
+    /**
+     * The bytes the bits need; decoding a status may read one byte past them, inside the block buffer.
+     */
+    private static int packedLength(int count) {
+        return (count * STATUS_BITS + 7) / 8;
+    }
+
+    private static int width(EventColumns events, int start, int end) {
+        long min = min(events, start, end);
+        long offsets = 0;
+        for (int i = start; i < end; i++) {
+            offsets |= events.timestamp(i) - min;
+        }
+        return Long.SIZE - Long.numberOfLeadingZeros(offsets);
+    }
+
+    private static long min(EventColumns events, int start, int end) {
+        long min = Long.MAX_VALUE;
+        for (int i = start; i < end; i++) {
+            min = Math.min(min, events.timestamp(i));
+        }
+        return min;
+    }
+
+    /**
+     * The words holding {@code count} offsets of {@code width} bits, and a spare one that unpacking may read.
+     */
+    private static int words(int count, int width) {
+        return (count * width + Long.SIZE - 1) / Long.SIZE + 1;
+    }
+
+    private static int packedBytes(int count, int width) {
+        return (count * width + Byte.SIZE - 1) / Byte.SIZE;
+    }
+
+    private static int directorySize(int blocks) {
+        return blocks > 1 ? blocks * DIRECTORY_ENTRY_SIZE : 0;
+    }
+
+    private static int blocks(long count) {
+        return (int) ((count + BLOCK_SIZE - 1) / BLOCK_SIZE);
+    }
+}
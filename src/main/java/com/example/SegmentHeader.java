@@ -0,0 +1,69 @@
+package com.example;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Fixed-size header at the start of every segment: record count, timestamp bounds, per-status counts, and
+ * whether the events after it are fixed-width records or {@link SegmentCodec compressed}.
+ */
+record SegmentHeader(long count, long minTimestamp, long maxTimestamp, long[] statusCounts, boolean compressed) {
+    static final int SIZE = 64;
+    static final SegmentHeader EMPTY = new SegmentHeader(0, Long.MAX_VALUE, Long.MIN_VALUE, new long[Status.values().length], false);
+
+    private static final int MAGIC = 0x45565347;
+    private static final short VERSION = 1;
+    private static final short COMPRESSED_VERSION = 3;
+
+    SegmentHeader with(Status status, long timestamp) {
+        long[] counts = statusCounts.clone();
+        counts[status.ordinal()]++;
+        return new SegmentHeader(count + 1, Math.min(minTimestamp, timestamp), Math.max(maxTimestamp, timestamp), counts, compressed);
+    }
+
+    boolean overlaps(long from, long to) {
+        return count > 0 && maxTimestamp >= from && minTimestamp <= to;
+    }
+
+    boolean contains(Status... statuses) {
+        for (Status status : statuses) {
+            if (statusCounts[status.ordinal()] > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    void encode(ByteBuffer buffer) {
+        int start = buffer.position();
+        buffer.putInt(MAGIC)
+                .putShort(compressed ? COMPRESSED_VERSION : VERSION)
+                .putShort((short) (compressed ? 0 : BinaryEventStore.RECORD_SIZE))
+                .putLong(count).putLong(minTimestamp).putLong(maxTimestamp);
+        for (long statusCount : statusCounts) {
+            buffer.putInt((int) statusCount);
+        }
+        buffer.position(start + SIZE);
+    }
+
+    static SegmentHeader decode(ByteBuffer buffer) {
+        int start = buffer.position();
+        if (buffer.remaining() < SIZE || buffer.getInt() != MAGIC) {
+            throw new IllegalArgumentException("Not a segment header");
+        }
+        short version = buffer.getShort();
+        if (version != VERSION && version != COMPRESSED_VERSION) {
+            throw new IllegalArgumentException("Unknown segment version: " + version);
+        }
+        buffer.getShort();
+
+        long count = buffer.getLong();
+        long minTimestamp = buffer.getLong();
+        long maxTimestamp = buffer.getLong();
+        long[] statusCounts = new long[Status.values().length];
+        for (int i = 0; i < statusCounts.length; i++) {
+            statusCounts[i] = Integer.toUnsignedLong(buffer.getInt());
+        }
+        buffer.position(start + SIZE);
+        return new SegmentHeader(count, minTimestamp, maxTimestamp, statusCounts, version == COMPRESSED_VERSION);
+    }
+}
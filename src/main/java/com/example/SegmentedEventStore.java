@@ -0,0 +1,396 @@
+package com.example;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Event log split into numbered segment files that roll over by record count or time span. Every segment
+ * starts with a {@link SegmentHeader}; headers of sealed segments are also collected in a manifest, so
+ * queries can skip segments outside the requested range or without the requested status without opening them.
+ * The active segment holds fixed-width records, written in place; a segment is rewritten in the
+ * {@link SegmentCodec compressed encoding} when it is sealed.
+ */
+public class SegmentedEventStore implements EventStore {
+    static final String EXTENSION = ".segments";
+    static final String SEGMENT_EXTENSION = ".seg";
+    static final String MANIFEST_FILENAME = "manifest";
+    static final long DEFAULT_MAX_RECORDS = 1 << 20;
+    static final long DEFAULT_MAX_SPAN_MILLIS = 7L * 24 * 60 * 60 * 1000;
+
+    private static final Status[] STATUSES = Status.values();
+    private static final int MANIFEST_ENTRY_SIZE = Long.BYTES + SegmentHeader.SIZE;
+    private static final long ANY_END = -1;
+
+    private final File directory;
+    private final long maxRecords;
+    private final long maxSpanMillis;
+    private final AppendChannel activeSegment;
+    private final StoreLock lock;
+    private final ReentrantLock mutex = new ReentrantLock();
+    private final ReentrantLock compaction = new ReentrantLock();
+    private final StoreLock compactionLock;
+
+    public SegmentedEventStore(File directory) {
+        this(directory, Durability.OS);
+    }
+
+    public SegmentedEventStore(File directory, Durability durability) {
+        this(directory, DEFAULT_MAX_RECORDS, DEFAULT_MAX_SPAN_MILLIS, durability);
+    }
+
+    public SegmentedEventStore(File directory, long maxRecords, long maxSpanMillis, Durability durability) {
+        this.directory = directory;
+        this.maxRecords = maxRecords;
+        this.maxSpanMillis = maxSpanMillis;
+        this.activeSegment = new AppendChannel(durability, AppendChannel.Recovery.NONE,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.lock = new StoreLock(directory);
+        this.compactionLock = new StoreLock(new File(directory.getPath() + LogEventStore.COMPACTING_SUFFIX));
+    }
+
+    @Override
+    public void append(Event event) throws IOException {
+        write(ANY_END, event);
+    }
+
+    /**
+     * The id of the active segment in the high bits and its record count in the low 32 bits.
+     */
+    @Override
+    public long end() throws IOException {
+        List<Long> ids = segmentIds();
+        return ids.isEmpty() ? 0 : end(ids.get(ids.size() - 1), readHeader(ids.get(ids.size() - 1)));
+    }
+
+    @Override
+    public boolean appendIf(long expectedEnd, Event... events) throws IOException {
+        return write(expectedEnd, events);
+    }
+
+    @Override
+    public void close() throws IOException {
+        mutex.lock();
+        try (lock; compactionLock) {
+            activeSegment.close();
+        } finally {
+            mutex.unlock();
+        }
+    }
+
+    /**
+     * Deletes or rewrites, oldest first, the sealed segments holding events the retention removes; a rewritten
+     * segment's new header is appended to the manifest. The active segment is left to the writers.
+     * Compactions of one store, in this process or another, run one at a time, as they share the segments'
+     * temporary files.
+     */
+    @Override
+    public long compact(Retention retention) throws IOException {
+        compaction.lock();
+        try (FileLock ignored = compactionLock.lock()) {
+            return compactExclusively(retention);
+        } finally {
+            compaction.unlock();
+        }
+    }
+
+    private long compactExclusively(Retention retention) throws IOException {
+        SortedMap<Long, SegmentHeader> segments = segments();
+        if (segments.isEmpty()) {
+            return 0;
+        }
+
+        long removed = 0;
+        for (Map.Entry<Long, SegmentHeader> segment : segments.headMap(segments.lastKey()).entrySet()) {
+            SegmentHeader header = segment.getValue();
+            if (header.count() == 0 || retention.keepsFrom(header.minTimestamp())) {
+                continue;
+            }
+            removed += retention.dropsUntil(header.maxTimestamp())
+                    ? drop(segment.getKey(), header)
+                    : rewrite(segment.getKey(), header, retention);
+        }
+        return removed;
+    }
+
+    @Override
+    public void scan(EventQuery query, EventVisitor visitor) throws IOException {
+        for (Map.Entry<Long, SegmentHeader> segment : segments().entrySet()) {
+            SegmentHeader header = segment.getValue();
+            if (!header.overlaps(query.from(), query.to())
+                    || query.status() != null && !header.contains(query.status())) {
+                continue;
+            }
+            if (!read(segment.getKey(), query, visitor)) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void scanBackward(EventVisitor visitor) throws IOException {
+        scanBackward(STATUSES, visitor);
+    }
+
+    @Override
+    public Optional<Event> latestByStatus(Status... statuses) throws IOException {
+        Event[] latest = new Event[1];
+        scanBackward(statuses, (status, timestamp) -> {
+            for (Status wanted : statuses) {
+                if (status == wanted) {
+                    latest[0] = new Event(status, timestamp);
+                    return false;
+                }
+            }
+            return true;
+        });
+        return Optional.ofNullable(latest[0]);
+    }
+
+    private void scanBackward(Status[] statuses, EventVisitor visitor) throws IOException {
+        List<Map.Entry<Long, SegmentHeader>> segments = new ArrayList<>(segments().entrySet());
+        Collections.reverse(segments);
+
+        for (Map.Entry<Long, SegmentHeader> segment : segments) {
+            SegmentHeader header = segment.getValue();
+            if (header.count() == 0 || !header.contains(statuses)) {
+                continue;
+            }
+
+            try (FileChannel channel = FileChannel.open(segmentFile(segment.getKey()).toPath(), StandardOpenOption.READ)) {
+                SegmentHeader opened = readHeader(channel);
+                if (opened.compressed()) {
+                    EventColumns events = new EventColumns();
+                    SegmentCodec.decode(map(channel), opened, EventQuery.ALL, events);
+                    if (!events.scanBackward(visitor)) {
+                        return;
+                    }
+                    continue;
+                }
+
+                MappedRecords records = new MappedRecords(channel, SegmentHeader.SIZE, BinaryEventStore.RECORD_SIZE);
+                for (long i = Math.min(records.count(), opened.count()) - 1; i >= 0; i--) {
+                    if (!visitor.visit(STATUSES[records.status(i)], records.timestamp(i))) {
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    private boolean write(long expectedEnd, Event... events) throws IOException {
+        GroupCommit commit;
+        long ticket;
+
+        mutex.lock();
+        try (FileLock ignored = lock.lock()) {
+            Files.createDirectories(directory.toPath());
+
+            List<Long> ids = segmentIds();
+            long id = ids.isEmpty() ? 0 : ids.get(ids.size() - 1);
+            SegmentHeader header = ids.isEmpty() ? SegmentHeader.EMPTY : readHeader(id);
+            if (expectedEnd != ANY_END && end(id, header) != expectedEnd) {
+                return false;
+            }
+            if (events.length == 0) {
+                return true;
+            }
+
+            for (Event event : events) {
+                if (id == 0 || header.compressed() || header.count() >= maxRecords
+                        || header.count() > 0 && event.timestamp() - header.minTimestamp() >= maxSpanMillis) {
+                    activeSegment.close();
+                    if (id > 0) {
+                        seal(id, header.compressed() ? header : compress(id));
+                    }
+                    id++;
+                    header = SegmentHeader.EMPTY;
+                }
+
+                FileChannel channel = activeSegment.open(segmentFile(id).toPath());
+                ByteBuffer record = ByteBuffer.allocate(BinaryEventStore.RECORD_SIZE);
+                record.put((byte) event.status().ordinal()).putLong(event.timestamp()).flip();
+                channel.write(record, SegmentHeader.SIZE + header.count() * BinaryEventStore.RECORD_SIZE);
+
+                header = header.with(event.status(), event.timestamp());
+                ByteBuffer encoded = ByteBuffer.allocate(SegmentHeader.SIZE);
+                header.encode(encoded);
+                channel.write(encoded.flip(), 0);
+            }
+
+            commit = activeSegment.groupCommit();
+            ticket = commit.written(events.length);
+        } finally {
+            mutex.unlock();
+        }
+        commit.sync(ticket);
+        return true;
+    }
+
+    private long drop(long id, SegmentHeader header) throws IOException {
+        mutex.lock();
+        try (FileLock ignored = lock.lock()) {
+            Files.deleteIfExists(segmentFile(id).toPath());
+            return header.count();
+        } finally {
+            mutex.unlock();
+        }
+    }
+
+    private long rewrite(long id, SegmentHeader header, Retention retention) throws IOException {
+        EventColumns kept = new EventColumns();
+        read(id, EventQuery.ALL, (status, timestamp) -> !retention.keep(status, timestamp) || kept.visit(status, timestamp));
+        if (kept.size() == 0) {
+            return drop(id, header);
+        }
+        if (kept.size() == header.count()) {
+            return 0;
+        }
+
+        File compacted = writeCompressed(id, kept);
+        mutex.lock();
+        try (FileLock ignored = lock.lock()) {
+            Files.move(compacted.toPath(), segmentFile(id).toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            seal(id, readHeader(id));
+        } finally {
+            mutex.unlock();
+        }
+        return header.count() - kept.size();
+    }
+
+    /**
+     * Replaces the fixed-width records of the segment being sealed with their compressed encoding. Readers that
+     * already opened the old file finish reading it; the caller holds the lock.
+     */
+    private SegmentHeader compress(long id) throws IOException {
+        EventColumns events = new EventColumns();
+        read(id, EventQuery.ALL, events);
+        File compressed = writeCompressed(id, events);
+        Files.move(compressed.toPath(), segmentFile(id).toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return readHeader(id);
+    }
+
+    /**
+     * Writes the events in the compressed encoding next to segment {@code id}, ready to be moved over it.
+     */
+    private File writeCompressed(long id, EventColumns events) throws IOException {
+        File file = new File(segmentFile(id).getPath() + LogEventStore.COMPACT_SUFFIX);
+        ByteBuffer buffer = SegmentCodec.encode(events);
+        try (FileChannel channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        return file;
+    }
+
+    /**
+     * Visits the events of a segment that match the query in order, decoding whichever encoding the file has when
+     * it is opened. Returns false once the visitor stops it; the records are read to the end, as a timestamp past
+     * the range may be followed by one inside it after the wall clock steps back.
+     */
+    private boolean read(long id, EventQuery query, EventVisitor visitor) throws IOException {
+        try (FileChannel channel = FileChannel.open(segmentFile(id).toPath(), StandardOpenOption.READ)) {
+            SegmentHeader header = readHeader(channel);
+            if (header.compressed()) {
+                return SegmentCodec.decode(map(channel), header, query, visitor);
+            }
+
+            MappedRecords records = new MappedRecords(channel, SegmentHeader.SIZE, BinaryEventStore.RECORD_SIZE);
+            for (long i = 0, count = Math.min(records.count(), header.count()); i < count; i++) {
+                Status status = STATUSES[records.status(i)];
+                long timestamp = records.timestamp(i);
+                if (query.matches(status, timestamp) && !visitor.visit(status, timestamp)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static long end(long id, SegmentHeader header) {
+        return id << 32 | header.count();
+    }
+
+    /**
+     * Headers of all segments in order: sealed ones from the manifest, the rest from their own files.
+     */
+    private SortedMap<Long, SegmentHeader> segments() throws IOException {
+        Map<Long, SegmentHeader> manifest = readManifest();
+        SortedMap<Long, SegmentHeader> segments = new TreeMap<>();
+
+        for (long id : segmentIds()) {
+            SegmentHeader header = manifest.get(id);
+            segments.put(id, header != null ? header : readHeader(id));
+        }
+        return segments;
+    }
+
+    private void seal(long id, SegmentHeader header) throws IOException {
+        ByteBuffer entry = ByteBuffer.allocate(MANIFEST_ENTRY_SIZE);
+        entry.putLong(id);
+        header.encode(entry);
+        entry.flip();
+
+        try (FileChannel channel = FileChannel.open(new File(directory, MANIFEST_FILENAME).toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(entry);
+        }
+    }
+
+    private Map<Long, SegmentHeader> readManifest() throws IOException {
+        File manifest = new File(directory, MANIFEST_FILENAME);
+        Map<Long, SegmentHeader> headers = new HashMap<>();
+        if (!manifest.exists()) {
+            return headers;
+        }
+
+        ByteBuffer entries = ByteBuffer.wrap(Files.readAllBytes(manifest.toPath()));
+        while (entries.remaining() >= MANIFEST_ENTRY_SIZE) {
+            long id = entries.getLong();
+            headers.put(id, SegmentHeader.decode(entries));
+        }
+        return headers;
+    }
+
+    private SegmentHeader readHeader(long id) throws IOException {
+        try (FileChannel channel = FileChannel.open(segmentFile(id).toPath(), StandardOpenOption.READ)) {
+            return readHeader(channel);
+        }
+    }
+
+    private static SegmentHeader readHeader(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(SegmentHeader.SIZE);
+        channel.read(header, 0);
+        return header.position() < SegmentHeader.SIZE ? SegmentHeader.EMPTY : SegmentHeader.decode(header.flip());
+    }
+
+    private static ByteBuffer map(FileChannel channel) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+
+    private List<Long> segmentIds() {
+        String[] names = directory.list((dir, name) -> name.endsWith(SEGMENT_EXTENSION));
+        List<Long> ids = new ArrayList<>();
+        if (names != null) {
+            for (String name : names) {
+                ids.add(Long.parseLong(name.substring(0, name.length() - SEGMENT_EXTENSION.length())));
+            }
+        }
+        Collections.sort(ids);
+        return ids;
+    }
+
+    private File segmentFile(long id) {
+        return new File(directory, String.format("%016d%s", id, SEGMENT_EXTENSION));
+    }
+}
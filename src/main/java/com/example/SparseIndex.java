@@ -0,0 +1,129 @@
+package com.example;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Sidecar file with one (timestamp, offset) entry for every {@link #INTERVAL} records of a log, used to start
+ * range scans close to the first matching record. An entry's timestamp is the newest of the records up to it,
+ * so entries only grow even if the log's timestamps do not. Added entries are
+ * buffered until {@link #flush()}, which the store calls once per batch of records while it holds its lock.
+ */
+class SparseIndex {
+    static final String SUFFIX = ".tsidx";
+    static final int INTERVAL = 1024;
+
+    private static final int ENTRY_SIZE = 16;
+    private static final int PENDING_ENTRIES = 4096;
+    private static final long UNKNOWN = Long.MIN_VALUE;
+
+    private final File file;
+    private ByteBuffer pending;
+    private long lastOffset = UNKNOWN;
+
+    SparseIndex(File log) {
+        this.file = new File(log.getPath() + SUFFIX);
+    }
+
+    /**
+     * Buffers an entry, unless the index already covers {@code offset}.
+     */
+    void add(long timestamp, long offset) throws IOException {
+        if (lastOffset == UNKNOWN) {
+            lastOffset = readLastOffset();
+        }
+        if (lastOffset >= offset) {
+            return;
+        }
+        if (pending == null) {
+            pending = ByteBuffer.allocate(PENDING_ENTRIES * ENTRY_SIZE);
+        } else if (!pending.hasRemaining()) {
+            writePending();
+        }
+        pending.putLong(timestamp).putLong(offset);
+        lastOffset = offset;
+    }
+
+    /**
+     * Writes the buffered entries with one channel.
+     */
+    void flush() throws IOException {
+        try {
+            writePending();
+        } finally {
+            discard();
+        }
+    }
+
+    /**
+     * Forgets the buffered entries, of records that did not make it into the log.
+     */
+    void discard() {
+        if (pending != null) {
+            pending.clear();
+        }
+        lastOffset = UNKNOWN;
+    }
+
+    /**
+     * Offset of the last entry older than {@code timestamp}; every record at or after {@code timestamp}
+     * starts at or after it.
+     */
+    long seek(long timestamp) throws IOException {
+        if (timestamp == Long.MIN_VALUE || !file.exists()) {
+            return 0;
+        }
+
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        ByteBuffer entries = ByteBuffer.wrap(bytes);
+        int low = 0;
+        int high = bytes.length / ENTRY_SIZE - 1;
+        long offset = 0;
+
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (entries.getLong(mid * ENTRY_SIZE) < timestamp) {
+                offset = entries.getLong(mid * ENTRY_SIZE + 8);
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return offset;
+    }
+
+    void clear() throws IOException {
+        discard();
+        Files.deleteIfExists(file.toPath());
+    }
+
+    private long readLastOffset() throws IOException {
+        if (file.length() < ENTRY_SIZE) {
+            return -1;
+        }
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer entry = ByteBuffer.allocate(ENTRY_SIZE);
+            LogEventStore.readFully(channel, entry, channel.size() - channel.size() % ENTRY_SIZE - ENTRY_SIZE);
+            return entry.getLong(8);
+        }
+    }
+
+    private void writePending() throws IOException {
+        if (pending == null || pending.position() == 0) {
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            long size = channel.size() - channel.size() % ENTRY_SIZE;
+            pending.flip();
+            while (pending.hasRemaining()) {
+                size += channel.write(pending, size);
+            }
+        }
+        pending.clear();
+    }
+}
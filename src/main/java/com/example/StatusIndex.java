@@ -0,0 +1,164 @@
+package com.example;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * One posting list per {@link Status}: a sidecar file with the offsets of that status's records in log order.
+ * Added offsets are buffered until {@link #flush()}, so a batch of records opens each file once.
+ */
+class StatusIndex {
+    static final String SUFFIX = ".postings";
+
+    private static final Status[] STATUSES = Status.values();
+    private static final int PENDING_OFFSETS = 4096;
+    private static final long UNKNOWN = Long.MIN_VALUE;
+
+    private final File log;
+    private final ByteBuffer[] pending = new ByteBuffer[STATUSES.length];
+    private final long[] lastOffsets = new long[STATUSES.length];
+
+    StatusIndex(File log) {
+        this.log = log;
+        Arrays.fill(lastOffsets, UNKNOWN);
+    }
+
+    /**
+     * Buffers an offset, unless the posting list already covers {@code offset}.
+     */
+    void add(Status status, long offset) throws IOException {
+        int index = status.ordinal();
+        if (lastOffsets[index] == UNKNOWN) {
+            lastOffsets[index] = last(status);
+        }
+        if (lastOffsets[index] >= offset) {
+            return;
+        }
+        if (pending[index] == null) {
+            pending[index] = ByteBuffer.allocate(PENDING_OFFSETS * Long.BYTES);
+        } else if (!pending[index].hasRemaining()) {
+            writePending(status);
+        }
+        pending[index].putLong(offset);
+        lastOffsets[index] = offset;
+    }
+
+    /**
+     * Writes the buffered offsets, with one channel per posting list.
+     */
+    void flush() throws IOException {
+        try {
+            for (Status status : STATUSES) {
+                writePending(status);
+            }
+        } finally {
+            discard();
+        }
+    }
+
+    /**
+     * Forgets the buffered offsets, of records that did not make it into the log.
+     */
+    void discard() {
+        for (ByteBuffer buffer : pending) {
+            if (buffer != null) {
+                buffer.clear();
+            }
+        }
+        Arrays.fill(lastOffsets, UNKNOWN);
+    }
+
+    /**
+     * Offset of the latest record with the given status, or -1 if there is none.
+     */
+    long last(Status status) throws IOException {
+        File file = file(status);
+        if (file.length() < Long.BYTES) {
+            return -1;
+        }
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer entry = ByteBuffer.allocate(Long.BYTES);
+            channel.read(entry, channel.size() - channel.size() % Long.BYTES - Long.BYTES);
+            return entry.getLong(0);
+        }
+    }
+
+    /**
+     * Offsets of the records with the given status that start at or after {@code from}, in log order.
+     */
+    PrimitiveIterator.OfLong offsets(Status status, long from) throws IOException {
+        File file = file(status);
+        if (!file.exists()) {
+            return new LongBufferIterator(LongBuffer.allocate(0));
+        }
+
+        LongBuffer postings;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            postings = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size() - channel.size() % Long.BYTES)
+                    .asLongBuffer();
+        }
+
+        int low = 0;
+        int high = postings.limit();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (postings.get(mid) < from) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return new LongBufferIterator(postings.position(low));
+    }
+
+    void clear() throws IOException {
+        discard();
+        for (Status status : STATUSES) {
+            Files.deleteIfExists(file(status).toPath());
+        }
+    }
+
+    private void writePending(Status status) throws IOException {
+        ByteBuffer buffer = pending[status.ordinal()];
+        if (buffer == null || buffer.position() == 0) {
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(file(status).toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            long size = channel.size() - channel.size() % Long.BYTES;
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                size += channel.write(buffer, size);
+            }
+        }
+        buffer.clear();
+    }
+
+    private File file(Status status) {
+        return new File(log.getPath() + "." + status.name().toLowerCase() + SUFFIX);
+    }
+
+    private record LongBufferIterator(LongBuffer buffer) implements PrimitiveIterator.OfLong {
+        @Override
+        public boolean hasNext() {
+            return buffer.hasRemaining();
+        }
+
+        @Override
+        public long nextLong() {
+            if (!buffer.hasRemaining()) {
+                throw new NoSuchElementException();
+            }
+            return buffer.get();
+        }
+    }
+}
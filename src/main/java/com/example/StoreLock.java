@@ -0,0 +1,47 @@
+package com.example;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Exclusive lock on a {@code .lock} file next to the store, taken by every process around its writes so
+ * concurrent CLI invocations append one at a time. A {@link FileLock} is held per process, not per thread:
+ * callers must already be serialized within the JVM.
+ */
+class StoreLock implements Closeable {
+    static final String SUFFIX = ".lock";
+
+    private final Path path;
+
+    private FileChannel channel;
+
+    StoreLock(File store) {
+        this.path = Path.of(store.getPath() + SUFFIX);
+    }
+
+    /**
+     * Blocks until no other process holds the lock.
+     */
+    FileLock lock() throws IOException {
+        if (channel == null || !channel.isOpen() || !Files.exists(path)) {
+            close();
+            Files.createDirectories(path.toAbsolutePath().getParent());
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        }
+        return channel.lock();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.example;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Current state of an event log as of {@link #offset()}: the event {@code status} reports, the latest
+ * UP/DOWN event it falls back to after a failure, the number of events, and the number ever appended, which
+ * compaction carries over rather than lowers. It also tracks the newest timestamp and whether no record was
+ * older than one before it, as after the wall clock steps back or in a converted legacy file.
+ */
+public record StoreSnapshot(Event current, Event settled, long count, long offset, long appended, long newest, boolean ordered) {
+    static final StoreSnapshot EMPTY = new StoreSnapshot(null, null, 0, 0, 0, Long.MIN_VALUE, true);
+
+    private static final int PLAIN_MAGIC = 0x45565353;
+    private static final int APPENDED_MAGIC = 0x45565354;
+    private static final int MAGIC = 0x45565355;
+
+    public StoreSnapshot apply(Status status, long timestamp, long offset) {
+        Event event = new Event(status, timestamp);
+        Event newSettled = status == Status.UP || status == Status.DOWN ? event : settled;
+        Event newCurrent = status != Status.FAILED ? event : newSettled;
+        return new StoreSnapshot(newCurrent, newSettled, count + 1, offset, appended + 1,
+                Math.max(newest, timestamp), ordered && timestamp >= newest);
+    }
+
+    public StoreSnapshot withOffset(long offset) {
+        return new StoreSnapshot(current, settled, count, offset, appended, newest, ordered);
+    }
+
+    public StoreSnapshot withAppended(long appended) {
+        return new StoreSnapshot(current, settled, count, offset, appended, newest, ordered);
+    }
+
+    static StoreSnapshot read(File file) {
+        if (!file.exists()) {
+            return EMPTY;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            int magic = in.readInt();
+            if (magic != MAGIC && magic != APPENDED_MAGIC && magic != PLAIN_MAGIC) {
+                return EMPTY;
+            }
+            long count = in.readLong();
+            long offset = in.readLong();
+            Event current = readEvent(in);
+            Event settled = readEvent(in);
+            long appended = magic == PLAIN_MAGIC ? count : in.readLong();
+            if (magic != MAGIC) {
+                // Older snapshots do not know whether the log is ordered: replay it all, still counting appends.
+                return EMPTY.withAppended(appended);
+            }
+            return new StoreSnapshot(current, settled, count, offset, appended, in.readLong(), in.readBoolean());
+        } catch (IOException e) {
+            return EMPTY;
+        }
+    }
+
+    void write(File file) throws IOException {
+        Path dir = file.getAbsoluteFile().toPath().getParent();
+        Path tmp = Files.createTempFile(dir, file.getName(), ".tmp");
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeLong(count);
+            out.writeLong(offset);
+            writeEvent(out, current);
+            writeEvent(out, settled);
+            out.writeLong(appended);
+            out.writeLong(newest);
+            out.writeBoolean(ordered);
+        } catch (IOException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+        Files.move(tmp, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static Event readEvent(DataInputStream in) throws IOException {
+        byte status = in.readByte();
+        long timestamp = in.readLong();
+        return status < 0 ? null : new Event(Status.values()[status], timestamp);
+    }
+
+    private static void writeEvent(DataOutputStream out, Event event) throws IOException {
+        out.writeByte(event == null ? -1 : event.status().ordinal());
+        out.writeLong(event == null ? 0 : event.timestamp());
+    }
+}
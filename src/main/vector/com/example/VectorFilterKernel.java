@@ -0,0 +1,61 @@
+package com.example;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * {@link FilterKernel} on the incubating Vector API. Each step takes one byte vector of statuses and the long
+ * vectors of the same width holding their timestamps, compares the timestamp lanes against both bounds and the
+ * status lanes against the mask, and turns the combined lane mask into selected indices. Only compiled with the
+ * {@code vector} profile and loaded by {@link FilterKernel#INSTANCE}.
+ */
+final class VectorFilterKernel implements FilterKernel {
+    private static final VectorSpecies<Long> LONGS = LongVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Byte> BYTES = ByteVector.SPECIES_PREFERRED;
+    private static final int STEP = BYTES.length();
+    private static final int ALL_STATUSES = FilterKernel.statusMask(null);
+
+    VectorFilterKernel() {
+        if (LONGS.length() < 2 || STEP > Long.SIZE) {
+            throw new UnsupportedOperationException("No usable SIMD shape: " + LONGS + ", " + BYTES);
+        }
+    }
+
+    @Override
+    public int select(long[] timestamps, byte[] statuses, int start, int end, long from, long to, int statusMask, int[] selection) {
+        LongVector lower = LongVector.broadcast(LONGS, from);
+        LongVector upper = LongVector.broadcast(LONGS, to);
+        ByteVector ones = ByteVector.broadcast(BYTES, (byte) 1);
+        boolean anyStatus = (statusMask & ALL_STATUSES) == ALL_STATUSES;
+
+        int count = 0;
+        int i = start;
+        for (int bound = start + (end - start) / STEP * STEP; i < bound; i += STEP) {
+            long selected = anyStatus ? -1L : ones.lanewise(VectorOperators.LSHL, ByteVector.fromArray(BYTES, statuses, i))
+                    .and((byte) statusMask)
+                    .compare(VectorOperators.NE, (byte) 0)
+                    .toLong();
+
+            long inRange = 0;
+            for (int lane = 0; lane < STEP; lane += LONGS.length()) {
+                LongVector values = LongVector.fromArray(LONGS, timestamps, i + lane);
+                inRange |= values.compare(VectorOperators.GE, lower)
+                        .and(values.compare(VectorOperators.LE, upper))
+                        .toLong() << lane;
+            }
+
+            for (long bits = selected & inRange; bits != 0; bits &= bits - 1) {
+                selection[count++] = i + Long.numberOfTrailingZeros(bits);
+            }
+        }
+
+        for (; i < end; i++) {
+            long timestamp = timestamps[i];
+            selection[count] = i;
+            count += timestamp >= from & timestamp <= to & (statusMask >>> statuses[i] & 1) != 0 ? 1 : 0;
+        }
+        return count;
+    }
+}
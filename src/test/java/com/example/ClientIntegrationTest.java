@@ -33,6 +33,11 @@ public class ClientIntegrationTest {
         public File eventsFile() {
             return new File(tempDir, "events.json");
         }
+
+        @Bean
+        public EventStore eventStore(File eventsFile) {
+            return EventStore.open(eventsFile);
+        }
     }
 
     @BeforeEach
@@ -432,6 +437,46 @@ public class ClientIntegrationTest {
         }
     }
 
+    @Test
+    @SneakyThrows
+    void shouldRunEveryCommandOfBatchFile() {
+        // given
+        File script = new File(tempDir, "commands.txt");
+        try (PrintWriter writer = new PrintWriter(script)) {
+            writer.println("# health checks");
+            writer.println("status");
+            writer.println();
+            writer.println("history --status 'FAILED' --sort \"desc\"");
+            writer.println("frobnicate");
+        }
+
+        // when
+        client.run("batch", "--file", script.getPath());
+
+        // then
+        assertEquals("No events found\nNo events found\nUnknown command: frobnicate", getOutput());
+    }
+
+    @Test
+    @SneakyThrows
+    void shouldCompactOnlyWhenRetentionIsGiven() {
+        // given
+        ensureDesiredStatusReached("up", "UP", 15);
+        ensureDesiredStatusReached("down", "DOWN", 15);
+        clearOutput();
+
+        // when
+        client.run("compact");
+        client.run("compact", "--max-events", "1");
+        client.run("status");
+
+        // then
+        String[] lines = getOutput().split("\n");
+        assertEquals("No retention configured", lines[0]);
+        assertTrue(lines[1].matches("Removed [1-9][0-9]* events"), lines[1]);
+        assertEquals("Status: DOWN", lines[2]);
+    }
+
     private List<LocalDateTime> extractTimestamps(String output) {
         List<LocalDateTime> timestamps = new ArrayList<>();
         // Use a regular expression or split the string to find the timestamps
@@ -0,0 +1,62 @@
+package com.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class EventColumnsTest {
+    @Test
+    void shouldSortLikeStableListSort() throws Exception {
+        Random random = new Random(42);
+        for (int size : new int[]{0, 1, 2, 3, 100, 10_007}) {
+            List<Event> list = new ArrayList<>();
+            EventColumns columns = new EventColumns();
+            for (int i = 0; i < size; i++) {
+                Event event = new Event(Status.values()[random.nextInt(5)], random.nextInt(size / 4 + 1));
+                list.add(event);
+                columns.add(event.status(), event.timestamp());
+            }
+
+            assertEquals(sorted(list, Comparator.comparingLong(Event::timestamp)), sorted(columns, false));
+            assertEquals(sorted(list, Comparator.comparingLong(Event::timestamp).reversed()), sorted(columns, true));
+        }
+    }
+
+    @Test
+    void shouldScanMatchingEventsInBothDirections() throws Exception {
+        EventColumns columns = new EventColumns();
+        for (int i = 0; i < 1000; i++) {
+            columns.add(Status.values()[i % 5], i);
+        }
+
+        List<Event> matching = new ArrayList<>();
+        columns.scan(new EventQuery(100, 199, Status.UP), (status, timestamp) -> matching.add(new Event(status, timestamp)));
+        assertEquals(20, matching.size());
+        assertEquals(new Event(Status.UP, 102), matching.get(0));
+
+        List<Event> latest = new ArrayList<>();
+        columns.scanBackward((status, timestamp) -> latest.add(new Event(status, timestamp)) && latest.size() < 2);
+        assertEquals(List.of(new Event(Status.FAILED, 999), new Event(Status.DOWN, 998)), latest);
+    }
+
+    private static List<Event> sorted(List<Event> events, Comparator<Event> comparator) {
+        List<Event> sorted = new ArrayList<>(events);
+        sorted.sort(comparator);
+        return sorted;
+    }
+
+    private static List<Event> sorted(EventColumns columns, boolean descending) throws Exception {
+        EventColumns copy = new EventColumns();
+        columns.scan(EventQuery.ALL, copy);
+        copy.sort(descending);
+
+        List<Event> events = new ArrayList<>();
+        copy.scan(EventQuery.ALL, (status, timestamp) -> events.add(new Event(status, timestamp)));
+        return events;
+    }
+}
@@ -0,0 +1,182 @@
+package com.example;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.OptionalInt;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EventDaemonTest {
+    @TempDir
+    File tempDir;
+
+    private EventStore store;
+    private EventDaemon daemon;
+    private Thread serving;
+    private Path socket;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        socket = new File(tempDir, "events.sock").toPath();
+        store = new InMemoryEventStore();
+        serve(store, socket);
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        daemon.close();
+        serving.join();
+    }
+
+    @Test
+    void shouldAnswerPipelinedCommandsInOrder() throws Exception {
+        List<String[]> commands = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            commands.add(new String[]{"status"});
+            commands.add(new String[]{"history", "--status", "FAILED"});
+        }
+        store.append(new Event(Status.DOWN, System.currentTimeMillis()));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        OptionalInt status = DaemonClient.forward(socket, commands, new PrintStream(out), System.err);
+
+        assertEquals(OptionalInt.of(0), status);
+        String expected = "Status: DOWN" + System.lineSeparator() + "No events found" + System.lineSeparator();
+        assertEquals(expected.repeat(1000), out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void shouldServeManyConnectionsAtOnce() throws Exception {
+        List<Future<String>> outputs = new ArrayList<>();
+        try (ExecutorService pollers = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 1000; i++) {
+                outputs.add(pollers.submit(() -> {
+                    ByteArrayOutputStream out = new ByteArrayOutputStream();
+                    assertEquals(OptionalInt.of(0), DaemonClient.forward(socket, new String[]{"status"}, new PrintStream(out), System.err));
+                    return out.toString(StandardCharsets.UTF_8);
+                }));
+            }
+        }
+
+        for (Future<String> output : outputs) {
+            assertEquals("No events found" + System.lineSeparator(), output.get());
+        }
+    }
+
+    @Test
+    void shouldLetOnlyOwnerConnect() throws Exception {
+        assertEquals(PosixFilePermissions.fromString("rw-------"), Files.getPosixFilePermissions(socket));
+        assertArrayEquals(new String[]{"events.sock"}, tempDir.list());
+    }
+
+    @Test
+    void shouldFindSocketWhereSpringFindsIt() throws Exception {
+        String property = System.setProperty(DaemonClient.SOCKET_PROPERTY, "property.sock");
+        try {
+            assertEquals(Path.of("argument.sock"), DaemonClient.socketPath(new String[]{"daemon", "--events.socket=argument.sock"}));
+            assertEquals(Path.of("property.sock"), DaemonClient.socketPath(new String[]{"status"}));
+        } finally {
+            if (property == null) {
+                System.clearProperty(DaemonClient.SOCKET_PROPERTY);
+            } else {
+                System.setProperty(DaemonClient.SOCKET_PROPERTY, property);
+            }
+        }
+    }
+
+    /**
+     * What {@link App#main} does with a command line naming the socket: forward it, or run it in-process.
+     */
+    @Test
+    void shouldRunCommandNamingSocketWithAndWithoutDaemon() throws Exception {
+        store.append(new Event(Status.DOWN, System.currentTimeMillis()));
+        String[] args = {"status", "--events.socket=" + socket};
+        PrintStream standardOut = System.out;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(out, true, StandardCharsets.UTF_8));
+        try {
+            assertEquals(OptionalInt.of(0), DaemonClient.run(DaemonClient.socketPath(args), DaemonClient.commandArgs(args)));
+
+            daemon.close();
+            serving.join();
+            assertEquals(OptionalInt.empty(), DaemonClient.run(DaemonClient.socketPath(args), DaemonClient.commandArgs(args)));
+            new CmdRunner(new Client(store), daemon).run(args);
+        } finally {
+            System.setOut(standardOut);
+        }
+
+        assertEquals(("Status: DOWN" + System.lineSeparator()).repeat(2), out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void shouldStreamOutputLargerThanOneChunk() throws Exception {
+        for (int i = 0; i < 50_000; i++) {
+            store.append(new Event(i % 2 == 0 ? Status.UP : Status.DOWN, 1_730_962_953_000L + i * 1000L));
+        }
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        new Client(store).run(new PrintStream(expected, false, StandardCharsets.UTF_8), "history");
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(OptionalInt.of(0), DaemonClient.forward(socket, new String[]{"history"}, new PrintStream(out), System.err));
+        assertTrue(out.size() > DaemonProtocol.MAX_CHUNK);
+        assertEquals(expected.toString(StandardCharsets.UTF_8), out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void shouldAnswerCommandsThatThrowErrors() throws Exception {
+        daemon.close();
+        serving.join();
+        serve(new InMemoryEventStore() {
+            @Override
+            public synchronized void scan(EventQuery query, EventVisitor visitor) {
+                throw new OutOfMemoryError("Java heap space");
+            }
+        }, socket);
+
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        OptionalInt status = DaemonClient.forward(socket, List.of(new String[]{"history"}, new String[]{"status"}),
+                new PrintStream(new ByteArrayOutputStream()), new PrintStream(err));
+
+        assertEquals(OptionalInt.of(1), status);
+        assertEquals("OutOfMemoryError: Java heap space" + System.lineSeparator(), err.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void shouldReportFailedCommandsOnErrorStream() throws Exception {
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        OptionalInt status = DaemonClient.forward(socket, new String[]{"history", "--status", "bogus"},
+                System.out, new PrintStream(err));
+
+        assertEquals(OptionalInt.of(1), status);
+        assertTrue(err.toString(StandardCharsets.UTF_8).startsWith("IllegalArgumentException"));
+    }
+
+    private void serve(EventStore store, Path socket) throws Exception {
+        daemon = new EventDaemon(new Client(store), socket);
+        serving = Thread.ofVirtual().start(() -> {
+            try {
+                daemon.serve();
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        while (!DaemonClient.isListening(socket)) {
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,533 @@
+package com.example;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EventStoreTest {
+    private static final long T0 = 1_730_962_953_000L;
+    private static final long DAY = 86_400_000L;
+
+    @TempDir
+    File tempDir;
+
+    @ParameterizedTest
+    @ValueSource(strings = {"json", "ndjson", "binary", "segmented", "partitioned", "memory"})
+    void shouldReturnNothingWhenStoreIsEmpty(String backend) throws IOException {
+        EventStore store = open(backend);
+
+        assertEquals(Optional.empty(), store.latest());
+        assertEquals(Optional.empty(), store.latestNotFailed());
+        assertEquals(List.of(), scan(store, EventQuery.ALL));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"json", "ndjson", "binary", "segmented", "partitioned", "memory"})
+    void shouldReturnEventsInAppendOrder(String backend) throws IOException {
+        EventStore store = open(backend);
+        List<Event> events = List.of(
+                new Event(Status.STARTING, T0),
+                new Event(Status.UP, T0 + 1000),
+                new Event(Status.STOPPING, T0 + 2000),
+                new Event(Status.DOWN, T0 + 3000));
+        for (Event event : events) {
+            store.append(event);
+        }
+
+        assertEquals(events, scan(store, EventQuery.ALL));
+        assertEquals(Optional.of(events.get(3)), store.latest());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"json", "ndjson", "binary", "segmented", "partitioned", "memory"})
+    void shouldFallBackToLatestUpOrDownAfterFailure(String backend) throws IOException {
+        EventStore store = open(backend);
+        store.append(new Event(Status.STARTING, T0));
+        store.append(new Event(Status.UP, T0 + 1000));
+        store.append(new Event(Status.STOPPING, T0 + 2000));
+        store.append(new Event(Status.FAILED, T0 + 3000));
+
+        assertEquals(Optional.of(new Event(Status.UP, T0 + 1000)), store.latestNotFailed());
+        assertEquals(Optional.of(new Event(Status.FAILED, T0 + 3000)), store.latest());
+        assertEquals(Optional.of(new Event(Status.STOPPING, T0 + 2000)), store.latestByStatus(Status.STARTING, Status.STOPPING));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"json", "ndjson", "binary", "segmented", "partitioned", "memory"})
+    void shouldFilterByRangeAndStatus(String backend) throws IOException {
+        EventStore store = open(backend);
+        for (int i = 0; i < 2500; i++) {
+            store.append(new Event(i % 2 == 0 ? Status.STARTING : Status.FAILED, T0 + i * 1000L));
+        }
+
+        List<Event> range = scan(store, new EventQuery(T0 + 2000_000L, T0 + 2009_000L, null));
+        assertEquals(10, range.size());
+        assertEquals(T0 + 2000_000L, range.get(0).timestamp());
+
+        List<Event> failed = scan(store, new EventQuery(T0 + 2000_000L, T0 + 2009_000L, Status.FAILED));
+        assertEquals(5, failed.size());
+        assertTrue(failed.stream().allMatch(event -> event.status() == Status.FAILED));
+    }
+
+    /**
+     * After the wall clock steps back, events inside a range follow newer ones; the scan must not stop at those.
+     */
+    @ParameterizedTest
+    @ValueSource(strings = {"json", "ndjson", "binary", "segmented", "partitioned", "memory"})
+    void shouldFindEventsAppendedAfterClockStepsBack(String backend) throws IOException {
+        EventStore store = open(backend);
+        for (int i = 0; i < 2500; i++) {
+            store.append(new Event(Status.UP, T0 + i * 1000L));
+        }
+        store.append(new Event(Status.DOWN, T0 + 500));
+        store.append(new Event(Status.UP, T0 + 2500_000L));
+        store = reopen(backend, store);
+
+        assertEquals(List.of(
+                new Event(Status.UP, T0),
+                new Event(Status.UP, T0 + 1000),
+                new Event(Status.DOWN, T0 + 500)), scan(store, new EventQuery(T0, T0 + 1000, null)));
+        assertEquals(List.of(new Event(Status.DOWN, T0 + 500)), scan(store, new EventQuery(T0 + 400, T0 + 600, Status.DOWN)));
+        assertEquals(List.of(new Event(Status.UP, T0 + 2000_000L)), scan(store, new EventQuery(T0 + 2000_000L, T0 + 2000_000L, null)));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"json", "ndjson", "binary", "segmented", "partitioned", "memory"})
+    void shouldAppendOnlyIfEndIsUnchanged(String backend) throws IOException {
+        EventStore store = open(backend);
+        store.append(new Event(Status.DOWN, T0));
+        long end = store.end();
+
+        assertTrue(store.appendIf(end, new Event(Status.STARTING, T0 + 1000), new Event(Status.UP, T0 + 1000)));
+        assertNotEquals(end, store.end());
+        assertFalse(store.appendIf(end, new Event(Status.STARTING, T0 + 2000), new Event(Status.FAILED, T0 + 2000)));
+
+        assertEquals(List.of(
+                new Event(Status.DOWN, T0),
+                new Event(Status.STARTING, T0 + 1000),
+                new Event(Status.UP, T0 + 1000)), scan(store, EventQuery.ALL));
+        assertTrue(store.appendIf(store.end(), new Event(Status.STOPPING, T0 + 3000)));
+        assertEquals(Optional.of(new Event(Status.STOPPING, T0 + 3000)), store.latest());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"ndjson", "binary"})
+    void shouldDropTornTailAndKeepHistory(String backend) throws IOException {
+        EventStore store = open(backend);
+        store.append(new Event(Status.STARTING, T0));
+        store.append(new Event(Status.UP, T0 + 1000));
+        store.close();
+
+        File file = new File(tempDir, backend.equals("binary") ? "events.bin" : "events.json");
+        Files.write(file.toPath(), new byte[]{'{', '"', 's', 't', 2, 0}, StandardOpenOption.APPEND);
+
+        store = open(backend);
+        assertEquals(Optional.of(new Event(Status.UP, T0 + 1000)), store.latest());
+        store.append(new Event(Status.STOPPING, T0 + 2000));
+        store.close();
+
+        assertEquals(List.of(
+                new Event(Status.STARTING, T0),
+                new Event(Status.UP, T0 + 1000),
+                new Event(Status.STOPPING, T0 + 2000)), scan(open(backend), EventQuery.ALL));
+    }
+
+    @Test
+    void shouldKeepRecordsAfterCorruptOneWhenRecovering() throws IOException {
+        EventStore store = open("binary");
+        for (int i = 0; i < 100; i++) {
+            store.append(new Event(Status.UP, T0 + i * 1000L));
+        }
+        store.close();
+
+        File file = new File(tempDir, "events.bin");
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        bytes[BinaryEventStore.HEADER_SIZE + 50 * BinaryEventStore.CHECKED_RECORD_SIZE + 5] ^= 1;
+        Files.write(file.toPath(), bytes);
+
+        store = open("binary");
+        store.append(new Event(Status.DOWN, T0 + 100_000L));
+        store.close();
+
+        List<Event> events = scan(open("binary"), EventQuery.ALL);
+        assertEquals(100, events.size());
+        assertEquals(new Event(Status.UP, T0 + 51_000L), events.get(50));
+        assertEquals(new Event(Status.DOWN, T0 + 100_000L), events.get(99));
+    }
+
+    @Test
+    void shouldSkipNdjsonLinesThatParseButFailChecksum() throws IOException {
+        File file = new File(tempDir, "events.json");
+        Files.writeString(file.toPath(), """
+                {"status":"STARTING","timestamp":%d}
+                {"status":"UP","timestamp":%d}
+                """.formatted(T0, T0 + 1000));
+        EventStore store = open("ndjson");
+        for (int i = 2; i < 6; i++) {
+            store.append(new Event(Status.UP, T0 + i * 1000L));
+        }
+        store.close();
+
+        List<String> lines = Files.readAllLines(file.toPath());
+        lines.set(3, lines.get(3).replace("\"UP\"", "\"DOWN\""));
+        lines.set(5, lines.get(5).replace(String.valueOf(T0 + 5000), String.valueOf(T0 + 5)));
+        Files.write(file.toPath(), lines);
+
+        store = open("ndjson");
+        store.append(new Event(Status.DOWN, T0 + 6000));
+        store.close();
+
+        assertEquals(List.of(
+                new Event(Status.STARTING, T0),
+                new Event(Status.UP, T0 + 1000),
+                new Event(Status.UP, T0 + 2000),
+                new Event(Status.UP, T0 + 4000),
+                new Event(Status.DOWN, T0 + 6000)), scan(open("ndjson"), EventQuery.ALL));
+        assertEquals(6, Files.readAllLines(file.toPath()).size());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"ndjson", "binary"})
+    void shouldSeeAppendsAndRewritesByOtherWritersAfterFullScan(String backend) throws IOException {
+        EventStore reader = open(backend);
+        reader.cacheScans();
+        EventStore writer = open(backend);
+        writer.append(new Event(Status.STARTING, T0));
+        assertEquals(List.of(new Event(Status.STARTING, T0)), scan(reader, EventQuery.ALL));
+
+        writer.append(new Event(Status.UP, T0 + 1000));
+        assertEquals(List.of(new Event(Status.STARTING, T0), new Event(Status.UP, T0 + 1000)), scan(reader, EventQuery.ALL));
+        assertEquals(List.of(new Event(Status.UP, T0 + 1000)), scan(reader, new EventQuery(T0 + 1, Long.MAX_VALUE, Status.UP)));
+
+        writer.close();
+        Files.delete(new File(tempDir, backend.equals("binary") ? "events.bin" : "events.json").toPath());
+        writer = open(backend);
+        writer.append(new Event(Status.DOWN, T0 + 2000));
+        assertEquals(List.of(new Event(Status.DOWN, T0 + 2000)), scan(reader, EventQuery.ALL));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"ndjson", "binary"})
+    void shouldRebuildMissingOrStaleSnapshot(String backend) throws IOException {
+        File file = new File(tempDir, backend.equals("binary") ? "events.bin" : "events.json");
+        File snapshot = new File(file.getPath() + LogEventStore.SNAPSHOT_SUFFIX);
+        EventStore store = open(backend);
+        appendDays(store, 1);
+        byte[] stale = Files.readAllBytes(snapshot.toPath());
+        appendDays(store, 2);
+        store.close();
+
+        Files.write(snapshot.toPath(), stale);
+        assertEquals(Optional.of(new Event(Status.DOWN, T0 + DAY + 3000)), open(backend).latestNotFailed());
+        assertEquals(new StoreSnapshot(new Event(Status.DOWN, T0 + DAY + 3000), new Event(Status.DOWN, T0 + DAY + 3000), 18, file.length(), 18,
+                T0 + DAY + 5000, false), StoreSnapshot.read(snapshot));
+
+        Files.delete(snapshot.toPath());
+        assertEquals(Optional.of(new Event(Status.DOWN, T0 + DAY + 3000)), open(backend).latestNotFailed());
+        assertEquals(file.length(), StoreSnapshot.read(snapshot).offset());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"ndjson", "binary"})
+    void shouldAnswerStatusFromSnapshotWithoutReadingLog(String backend) throws IOException {
+        File file = new File(tempDir, backend.equals("binary") ? "events.bin" : "events.json");
+        EventStore store = open(backend);
+        appendDays(store, 2);
+        store.close();
+
+        Files.write(file.toPath(), new byte[(int) file.length()]);
+        assertEquals(Optional.of(new Event(Status.DOWN, T0 + DAY + 3000)), open(backend).latestNotFailed());
+    }
+
+    @Test
+    void shouldStreamLegacyArrayAndConvertItOnFirstAppend() throws IOException {
+        File file = new File(tempDir, "events.json");
+        Files.writeString(file.toPath(), """
+                 [
+                  {"status": "UP", "timestamp": %d, "host": {"name": "vpn"}},
+                  {"timestamp": %d, "status": "DOWN"},
+                  {"status": "STARTING", "timestamp": %d}
+                ]
+                """.formatted(T0, T0 + 1000, T0 + 2000));
+        List<Event> legacy = List.of(new Event(Status.UP, T0), new Event(Status.DOWN, T0 + 1000), new Event(Status.STARTING, T0 + 2000));
+
+        EventStore store = open("ndjson");
+        assertEquals(legacy, scan(store, EventQuery.ALL));
+        List<Event> backward = new ArrayList<>();
+        store.scanBackward((status, timestamp) -> backward.add(new Event(status, timestamp)));
+        assertEquals(legacy.reversed(), backward);
+        assertEquals(Optional.of(new Event(Status.STARTING, T0 + 2000)), store.latestNotFailed());
+
+        store.append(new Event(Status.FAILED, T0 + 3000));
+        List<String> lines = Files.readAllLines(file.toPath());
+        assertEquals(4, lines.size());
+        assertTrue(lines.stream().allMatch(line -> line.startsWith("{") && line.endsWith("}")));
+
+        List<Event> all = new ArrayList<>(legacy);
+        all.add(new Event(Status.FAILED, T0 + 3000));
+        assertEquals(all, scan(open("ndjson"), EventQuery.ALL));
+        assertEquals(Optional.of(new Event(Status.DOWN, T0 + 1000)), open("ndjson").latestNotFailed());
+    }
+
+    @Test
+    void shouldScanConvertedLegacyArrayWithEventsOutOfOrder() throws IOException {
+        File file = new File(tempDir, "events.json");
+        Files.writeString(file.toPath(), """
+                [{"status": "UP", "timestamp": %d}, {"status": "DOWN", "timestamp": %d}]
+                """.formatted(T0 + 2000, T0));
+        EventStore store = open("ndjson");
+        store.append(new Event(Status.UP, T0 + 3000));
+
+        assertEquals(List.of(new Event(Status.DOWN, T0)), scan(open("ndjson"), new EventQuery(T0, T0 + 1000, null)));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"json", "ndjson", "binary", "segmented", "partitioned", "memory"})
+    void shouldDropOldEventsAndDownsampleOlderOnes(String backend) throws IOException {
+        EventStore store = open(backend);
+        appendDays(store, 60);
+        long now = T0 + 60 * DAY;
+        Optional<Event> status = store.latestNotFailed();
+
+        RetentionPolicy policy = RetentionPolicy.parse("40d", null, "20d");
+        assertEquals(20 * 6 + 20 * 4, store.compact(policy.start(store, now)));
+
+        List<Event> events = scan(reopen(backend, store), EventQuery.ALL);
+        assertEquals(20 * 2 + 20 * 6, events.size());
+        assertEquals(new Event(Status.UP, T0 + 20 * DAY + 1000), events.get(0));
+        assertEquals(new Event(Status.DOWN, T0 + 20 * DAY + 3000), events.get(1));
+        assertEquals(new Event(Status.STARTING, T0 + 40 * DAY), events.get(40));
+        assertEquals(status, reopen(backend, store).latestNotFailed());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"json", "ndjson", "binary", "partitioned", "memory"})
+    void shouldKeepLatestEventsButNeverTheCurrentStatus(String backend) throws IOException {
+        EventStore store = open(backend);
+        appendDays(store, 3);
+        long now = T0 + 3 * DAY;
+
+        assertEquals(18 - 8, store.compact(RetentionPolicy.parse(null, "8", null).start(store, now)));
+        assertEquals(8, scan(store, EventQuery.ALL).size());
+
+        assertEquals(8 - 3, store.compact(RetentionPolicy.parse(null, "1", null).start(store, now)));
+        assertEquals(List.of(
+                new Event(Status.DOWN, T0 + 2 * DAY + 3000),
+                new Event(Status.STARTING, T0 + 2 * DAY + 4000),
+                new Event(Status.FAILED, T0 + 2 * DAY + 5000)), scan(reopen(backend, store), EventQuery.ALL));
+        assertEquals(Optional.of(new Event(Status.DOWN, T0 + 2 * DAY + 3000)), store.latestNotFailed());
+    }
+
+    /**
+     * Compaction followed by as many appends leaves a store of the same size, which must not pass for unchanged.
+     */
+    @ParameterizedTest
+    @ValueSource(strings = {"json", "ndjson", "binary", "partitioned", "memory"})
+    void shouldRejectStaleEndAfterCompactionAndAppends(String backend) throws IOException {
+        EventStore store = open(backend);
+        appendDays(store, 2);
+        long end = store.end();
+
+        long removed = store.compact(RetentionPolicy.parse("1d", null, null).start(store, T0 + 2 * DAY));
+        assertEquals(6, removed);
+        store = reopen(backend, store);
+        for (int i = 0; i < removed; i++) {
+            store.append(new Event(Status.UP, T0 + 2 * DAY + i * 1000L));
+        }
+
+        assertNotEquals(end, store.end());
+        assertFalse(store.appendIf(end, new Event(Status.FAILED, T0 + 3 * DAY)));
+        assertEquals(Optional.of(new Event(Status.UP, T0 + 2 * DAY + (removed - 1) * 1000L)), store.latest());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"ndjson", "binary", "segmented"})
+    void shouldRunConcurrentCompactionsOneAtATime(String backend) throws Exception {
+        EventStore store = open(backend);
+        appendDays(store, 60);
+        Retention retention = RetentionPolicy.parse("40d", null, "20d").start(store, T0 + 60 * DAY);
+
+        List<Future<Long>> removed = new ArrayList<>();
+        try (ExecutorService compactions = Executors.newFixedThreadPool(2)) {
+            for (int i = 0; i < 2; i++) {
+                removed.add(compactions.submit(() -> store.compact(retention)));
+            }
+        }
+
+        assertEquals(20 * 6 + 20 * 4, removed.get(0).get() + removed.get(1).get());
+        assertEquals(20 * 2 + 20 * 6, scan(reopen(backend, store), EventQuery.ALL).size());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"ndjson", "binary"})
+    void shouldRebuildIndexesLeftFromLogReplacedByCompaction(String backend) throws IOException {
+        EventStore store = open(backend);
+        appendDays(store, 60);
+        store.close();
+        File[] indexes = tempDir.listFiles((dir, name) -> name.endsWith(StatusIndex.SUFFIX) || name.endsWith(SparseIndex.SUFFIX));
+        List<byte[]> stale = new ArrayList<>();
+        for (File index : indexes) {
+            stale.add(Files.readAllBytes(index.toPath()));
+        }
+
+        store = open(backend);
+        store.compact(RetentionPolicy.parse("40d", null, "20d").start(store, T0 + 60 * DAY));
+        store.close();
+        for (int i = 0; i < indexes.length; i++) {
+            Files.write(indexes[i].toPath(), stale.get(i));
+        }
+        Files.delete(new File(tempDir, (backend.equals("binary") ? "events.bin" : "events.json") + LogEventStore.SNAPSHOT_SUFFIX).toPath());
+
+        store = open(backend);
+        assertEquals(20 * 2, scan(store, new EventQuery(Long.MIN_VALUE, Long.MAX_VALUE, Status.UP)).size());
+        assertEquals(Optional.of(new Event(Status.STOPPING, T0 + 59 * DAY + 2000)), store.latestByStatus(Status.STOPPING));
+    }
+
+    @Test
+    void shouldCompressSealedSegments() throws IOException {
+        File directory = new File(tempDir, "events.segments");
+        EventStore store = new SegmentedEventStore(directory, 10, SegmentedEventStore.DEFAULT_MAX_SPAN_MILLIS, Durability.OS);
+        appendDays(store, 6);
+        List<Event> events = scan(store, EventQuery.ALL);
+
+        File[] segments = directory.listFiles((dir, name) -> name.endsWith(SegmentedEventStore.SEGMENT_EXTENSION));
+        Arrays.sort(segments);
+        assertEquals(4, segments.length);
+        for (int i = 0; i < 3; i++) {
+            assertTrue(segments[i].length() < SegmentHeader.SIZE + 10 * 5, segments[i].length() + " bytes");
+        }
+
+        store = new SegmentedEventStore(directory, 10, SegmentedEventStore.DEFAULT_MAX_SPAN_MILLIS, Durability.OS);
+        assertEquals(36, events.size());
+        assertEquals(events, scan(store, EventQuery.ALL));
+        assertEquals(List.of(new Event(Status.UP, T0 + DAY + 1000), new Event(Status.UP, T0 + 2 * DAY + 1000)),
+                scan(store, new EventQuery(T0 + DAY, T0 + 3 * DAY - 1, Status.UP)));
+        assertEquals(Optional.of(new Event(Status.DOWN, T0 + 5 * DAY + 3000)), store.latestNotFailed());
+
+        assertEquals(3 * 4, store.compact(RetentionPolicy.parse(null, null, "3d").start(store, T0 + 6 * DAY)));
+        List<Event> compacted = scan(store, EventQuery.ALL);
+        assertEquals(new Event(Status.DOWN, T0 + 2 * DAY + 3000), compacted.get(5));
+        assertEquals(events.subList(3 * 6, 36), compacted.subList(6, compacted.size()));
+    }
+
+    @Test
+    void shouldOpenOnlyPartitionsInsideQueryRange() throws IOException {
+        File directory = new File(tempDir, "events.partitions");
+        EventStore store = new PartitionedEventStore(directory, PartitionedEventStore.Granularity.DAY, Durability.OS);
+        for (int day = 0; day < 3; day++) {
+            store.append(new Event(Status.UP, T0 + day * 86_400_000L));
+        }
+        store.close();
+
+        String[] partitions = directory.list((dir, name) -> name.endsWith(".bin"));
+        Arrays.sort(partitions);
+        assertArrayEquals(new String[]{"2024-11-07.bin", "2024-11-08.bin", "2024-11-09.bin"}, partitions);
+        File first = new File(directory, "2024-11-07.bin");
+        Files.delete(first.toPath());
+        Files.createDirectory(first.toPath());
+
+        store = new PartitionedEventStore(directory);
+        assertEquals(List.of(new Event(Status.UP, T0 + 2 * 86_400_000L)),
+                scan(store, new EventQuery(T0 + 86_400_000L + 1, Long.MAX_VALUE, null)));
+        assertEquals(Optional.of(new Event(Status.UP, T0 + 2 * 86_400_000L)), store.latest());
+    }
+
+    @Test
+    void shouldCloseLeastRecentlyUsedPartitions() throws Exception {
+        long before = syncThreads();
+        EventStore store = new PartitionedEventStore(new File(tempDir, "events.partitions"),
+                PartitionedEventStore.Granularity.DAY, Durability.parse("60000ms"));
+        appendDays(store, 30);
+        assertEquals(30 * 6, scan(store, EventQuery.ALL).size());
+
+        for (int i = 0; i < 100 && syncThreads() > before + 4; i++) {
+            Thread.sleep(10);
+        }
+        assertTrue(syncThreads() <= before + 4);
+        store.close();
+    }
+
+    @Test
+    void shouldKeepEventOrderAcrossPartitionsOfMixedGranularity() throws IOException {
+        File directory = new File(tempDir, "events.partitions");
+        PartitionedEventStore.Granularity[] granularities = {
+                PartitionedEventStore.Granularity.MONTH, PartitionedEventStore.Granularity.DAY, PartitionedEventStore.Granularity.MONTH};
+        List<Event> events = new ArrayList<>();
+        for (int i = 0; i < granularities.length; i++) {
+            EventStore store = new PartitionedEventStore(directory, granularities[i], Durability.OS);
+            for (int day = 2 * i; day < 2 * i + 2; day++) {
+                for (Event event : List.of(new Event(Status.UP, T0 + day * DAY), new Event(Status.DOWN, T0 + day * DAY + 1000))) {
+                    store.append(event);
+                    events.add(event);
+                }
+            }
+            store.close();
+        }
+
+        EventStore store = new PartitionedEventStore(directory);
+        assertEquals(events, scan(store, EventQuery.ALL));
+        assertEquals(events.subList(4, 9), scan(store, new EventQuery(T0 + 2 * DAY, T0 + 4 * DAY, null)));
+        assertEquals(Optional.of(events.getLast()), store.latest());
+        assertEquals(Optional.of(events.getLast()), store.latestNotFailed());
+        assertEquals(Optional.of(new Event(Status.UP, T0 + 5 * DAY)), store.latestByStatus(Status.UP));
+
+        List<Event> backward = new ArrayList<>();
+        store.scanBackward((status, timestamp) -> backward.add(new Event(status, timestamp)));
+        assertEquals(events.reversed(), backward);
+    }
+
+    private EventStore open(String backend) {
+        String name = switch (backend) {
+            case "binary" -> "events.bin";
+            case "segmented" -> "events.segments";
+            case "partitioned" -> "events.partitions";
+            default -> "events.json";
+        };
+        File file = new File(tempDir, name);
+        return backend.equals("partitioned") ? EventStore.open(file) : EventStore.open(backend, file);
+    }
+
+    /**
+     * A new instance on the same files, or the same store if it keeps nothing on disk.
+     */
+    private EventStore reopen(String backend, EventStore store) {
+        return backend.equals("memory") ? store : open(backend);
+    }
+
+    /**
+     * Six events a day: a start that succeeds, a stop, and a start that fails.
+     */
+    private static void appendDays(EventStore store, int days) throws IOException {
+        Status[] day = {Status.STARTING, Status.UP, Status.STOPPING, Status.DOWN, Status.STARTING, Status.FAILED};
+        for (int i = 0; i < days; i++) {
+            for (int j = 0; j < day.length; j++) {
+                store.append(new Event(day[j], T0 + i * DAY + j * 1000L));
+            }
+        }
+    }
+
+    private static long syncThreads() {
+        return Thread.getAllStackTraces().keySet().stream().filter(thread -> thread.getName().equals("event-store-sync")).count();
+    }
+
+    private static List<Event> scan(EventStore store, EventQuery query) throws IOException {
+        List<Event> events = new ArrayList<>();
+        store.scan(query, (status, timestamp) -> events.add(new Event(status, timestamp)));
+        return events;
+    }
+}
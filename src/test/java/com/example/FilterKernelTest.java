@@ -0,0 +1,69 @@
+package com.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class FilterKernelTest {
+    /**
+     * One index at a time, the way the kernels are specified.
+     */
+    private static final FilterKernel REFERENCE = (timestamps, statuses, start, end, from, to, statusMask, selection) -> {
+        int selected = 0;
+        for (int i = start; i < end; i++) {
+            if (timestamps[i] >= from && timestamps[i] <= to && (statusMask >>> statuses[i] & 1) != 0) {
+                selection[selected++] = i;
+            }
+        }
+        return selected;
+    };
+
+    @Test
+    void shouldSelectLikeReferenceWithScalarKernel() {
+        assertSelectsLike(REFERENCE, new ScalarFilterKernel());
+    }
+
+    /**
+     * Runs with {@code mvn -Pvector test}; without the profile the Vector API kernel is not built and this is skipped.
+     */
+    @Test
+    void shouldSelectLikeScalarKernelWithVectorKernel() {
+        FilterKernel vector;
+        try {
+            vector = (FilterKernel) Class.forName(FilterKernel.VECTOR_KERNEL).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            vector = null;
+        }
+        assumeTrue(vector != null, "Vector kernel not built or jdk.incubator.vector not added");
+        assertSelectsLike(new ScalarFilterKernel(), vector);
+    }
+
+    private static void assertSelectsLike(FilterKernel expectedKernel, FilterKernel kernel) {
+        Random random = new Random(42);
+        long[] timestamps = new long[10_000];
+        byte[] statuses = new byte[timestamps.length];
+        for (int i = 0; i < timestamps.length; i++) {
+            timestamps[i] = random.nextInt(1000) - 100;
+            statuses[i] = (byte) random.nextInt(Status.values().length);
+        }
+
+        for (int run = 0; run < 200; run++) {
+            int start = random.nextInt(timestamps.length);
+            int end = start + random.nextInt(timestamps.length - start + 1);
+            long from = run % 10 == 0 ? Long.MIN_VALUE : random.nextInt(1000) - 200;
+            long to = run % 7 == 0 ? Long.MAX_VALUE : from + random.nextInt(800);
+            int statusMask = run % 3 == 0 ? FilterKernel.statusMask(null) : random.nextInt(1 << Status.values().length);
+
+            int[] expected = new int[end - start];
+            int[] actual = new int[end - start];
+            int expectedCount = expectedKernel.select(timestamps, statuses, start, end, from, to, statusMask, expected);
+            int actualCount = kernel.select(timestamps, statuses, start, end, from, to, statusMask, actual);
+
+            assertArrayEquals(Arrays.copyOf(expected, expectedCount), Arrays.copyOf(actual, actualCount));
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.example;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GroupCommitTest {
+    @TempDir
+    File tempDir;
+
+    @Test
+    void shouldParseDurability() {
+        assertEquals(Durability.ALWAYS, Durability.parse("always"));
+        assertEquals(Durability.OS, Durability.parse(" OS "));
+        assertEquals(new Durability(Durability.Mode.INTERVAL, 250), Durability.parse("250ms"));
+        assertEquals(new Durability(Durability.Mode.RECORDS, 1000), Durability.parse("1000records"));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "never", "0ms", "-5records", "fastms", "10 seconds"})
+    void shouldRejectInvalidDurability(String value) {
+        assertThrows(IllegalArgumentException.class, () -> Durability.parse(value));
+    }
+
+    @Test
+    void shouldSyncAfterEveryNRecords() throws IOException {
+        try (FileChannel channel = open(); GroupCommit commit = new GroupCommit(channel, Durability.parse("3records"))) {
+            commit.sync(commit.written(2));
+            assertEquals(0, commit.synced());
+
+            commit.sync(commit.written(1));
+            assertEquals(3, commit.synced());
+
+            commit.sync(commit.written(5));
+            assertEquals(8, commit.synced());
+        }
+    }
+
+    @Test
+    void shouldSyncAfterInterval() throws Exception {
+        try (FileChannel channel = open(); GroupCommit commit = new GroupCommit(channel, Durability.parse("20ms"))) {
+            long ticket = commit.written(1);
+            commit.sync(ticket);
+
+            for (int i = 0; i < 100 && commit.synced() < ticket; i++) {
+                Thread.sleep(10);
+            }
+            assertEquals(ticket, commit.synced());
+        }
+    }
+
+    @Test
+    void shouldSyncEveryWriteWhenAlways() throws IOException {
+        try (FileChannel channel = open(); GroupCommit commit = new GroupCommit(channel, Durability.ALWAYS)) {
+            commit.sync(commit.written(1));
+            assertEquals(1, commit.synced());
+        }
+    }
+
+    private FileChannel open() throws IOException {
+        return FileChannel.open(new File(tempDir, "events.bin").toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+    }
+}
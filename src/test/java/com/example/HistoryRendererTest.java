@@ -0,0 +1,92 @@
+package com.example;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class HistoryRendererTest {
+    @TempDir
+    File tempDir;
+
+    @Test
+    void shouldRenderLikeLocalDateTimeToString() throws Exception {
+        Random random = new Random(42);
+        long[] timestamps = new long[100_000];
+        for (int i = 0; i < timestamps.length; i++) {
+            timestamps[i] = switch (i % 4) {
+                case 0 -> 1_730_962_953_000L + random.nextInt(1_000_000_000);
+                case 1 -> random.nextLong(-100_000_000_000_000L, 400_000_000_000_000L);
+                case 2 -> random.nextInt(100_000) * 60_000L;
+                default -> -random.nextInt(1_000_000);
+            };
+        }
+
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        try (PrintStream printer = new PrintStream(expected, false, StandardCharsets.UTF_8)) {
+            HistoryRenderer renderer = new HistoryRenderer(actual);
+            for (int i = 0; i < timestamps.length; i++) {
+                Status status = Status.values()[i % Status.values().length];
+                LocalDateTime dateTime = LocalDateTime.ofEpochSecond(timestamps[i] / 1000, 0, ZoneOffset.UTC);
+                printer.println("Status: " + status + ", Timestamp: " + dateTime);
+                renderer.render(status, timestamps[i]);
+            }
+            renderer.flush();
+        }
+
+        assertEquals(expected.toString(StandardCharsets.UTF_8), actual.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void shouldRenderMachineReadableFormats() throws Exception {
+        assertEquals("{\"status\":\"UP\",\"timestamp\":1730962953000}\n{\"status\":\"FAILED\",\"timestamp\":-5}\n",
+                render(HistoryRenderer.Format.NDJSON));
+        assertEquals("status,timestamp\nUP,1730962953000\nFAILED,-5\n", render(HistoryRenderer.Format.CSV));
+    }
+
+    @Test
+    void shouldWriteBinaryHistoryAsBinaryEventLog() throws Exception {
+        BinaryEventStore store = new BinaryEventStore(new File(tempDir, "events.bin"));
+        ByteArrayOutputStream rendered = new ByteArrayOutputStream();
+        HistoryRenderer renderer = new HistoryRenderer(rendered, HistoryRenderer.Format.BIN);
+        for (int i = 0; i < 10_000; i++) {
+            store.append(new Event(Status.values()[i % 5], 1_730_962_953_000L + i));
+            renderer.render(Status.values()[i % 5], 1_730_962_953_000L + i);
+        }
+        renderer.flush();
+
+        ByteArrayOutputStream transferred = new ByteArrayOutputStream();
+        store.transferTo(Channels.newChannel(transferred));
+        assertArrayEquals(rendered.toByteArray(), transferred.toByteArray());
+
+        File copy = new File(tempDir, "copy.bin");
+        Files.write(copy.toPath(), rendered.toByteArray());
+        List<Event> events = new ArrayList<>();
+        new BinaryEventStore(copy).scan(EventQuery.ALL, (status, timestamp) -> events.add(new Event(status, timestamp)));
+        assertEquals(10_000, events.size());
+        assertEquals(new Event(Status.FAILED, 1_730_962_953_000L + 9_999), events.get(9_999));
+    }
+
+    private static String render(HistoryRenderer.Format format) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        HistoryRenderer renderer = new HistoryRenderer(out, format);
+        renderer.render(Status.UP, 1_730_962_953_000L);
+        renderer.render(Status.FAILED, -5);
+        renderer.flush();
+        return out.toString(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,56 @@
+package com.example;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MappedRecordsTest {
+    private static final long T0 = 1_730_962_953_000L;
+    private static final long FIRST_OF_SECOND_REGION = MappedRecords.REGION_BYTES / BinaryEventStore.CHECKED_RECORD_SIZE;
+
+    @TempDir
+    File tempDir;
+
+    /**
+     * A sparse file just over one region, with real records only on either side of the boundary.
+     */
+    @Test
+    void shouldReadRecordsOnBothSidesOfRegionBoundary() throws IOException {
+        File file = new File(tempDir, "events.bin");
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(BinaryEventStore.HEADER_SIZE);
+            BinaryEventStore.putHeader(header);
+            channel.write(header.flip(), 0);
+            for (long i = FIRST_OF_SECOND_REGION - 2; i < FIRST_OF_SECOND_REGION + 2; i++) {
+                ByteBuffer record = ByteBuffer.allocate(BinaryEventStore.CHECKED_RECORD_SIZE);
+                BinaryEventStore.putRecord(record, i % 2 == 0 ? Status.UP : Status.DOWN, T0 + i);
+                channel.write(record.flip(), BinaryEventStore.HEADER_SIZE + i * BinaryEventStore.CHECKED_RECORD_SIZE);
+            }
+        }
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            MappedRecords records = new MappedRecords(channel, BinaryEventStore.HEADER_SIZE, BinaryEventStore.CHECKED_RECORD_SIZE);
+            assertEquals(FIRST_OF_SECOND_REGION + 2, records.count());
+            for (long i = FIRST_OF_SECOND_REGION - 2; i < records.count(); i++) {
+                assertTrue(records.valid(i));
+                assertEquals(i % 2 == 0 ? Status.UP.ordinal() : Status.DOWN.ordinal(), records.status(i));
+                assertEquals(T0 + i, records.timestamp(i));
+            }
+            assertFalse(records.valid(FIRST_OF_SECOND_REGION - 3));
+        }
+
+        List<Long> timestamps = new ArrayList<>();
+        new BinaryEventStore(file).scanBackward((status, timestamp) -> timestamps.add(timestamp) && timestamps.size() < 4);
+        assertEquals(List.of(T0 + FIRST_OF_SECOND_REGION + 1, T0 + FIRST_OF_SECOND_REGION,
+                T0 + FIRST_OF_SECOND_REGION - 1, T0 + FIRST_OF_SECOND_REGION - 2), timestamps);
+    }
+}
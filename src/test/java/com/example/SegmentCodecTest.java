@@ -0,0 +1,111 @@
+package com.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SegmentCodecTest {
+    private static final long T0 = 1_730_962_953_000L;
+
+    @Test
+    void shouldRoundTripPackedStatusesAndAnyTimestamps() throws IOException {
+        Random random = new Random(42);
+        EventColumns events = new EventColumns();
+        for (int i = 0; i < 10_007; i++) {
+            events.add(Status.values()[random.nextInt(5)], T0 + random.nextInt(1_000_000) - 500_000);
+        }
+        events.add(Status.UP, Long.MAX_VALUE);
+        events.add(Status.DOWN, Long.MIN_VALUE);
+
+        assertRoundTrip(events);
+    }
+
+    @Test
+    void shouldRoundTripRunsLongerThanOneCode() throws IOException {
+        EventColumns events = new EventColumns();
+        for (int i = 0; i < 1000; i++) {
+            events.add(i < 900 ? Status.FAILED : Status.values()[i % 5], T0 + i * 1000L);
+        }
+
+        ByteBuffer segment = assertRoundTrip(events);
+        assertTrue(segment.remaining() < SegmentHeader.SIZE + 1000 * 3);
+    }
+
+    /**
+     * Ten events spanning a day: a block header, 30 bits of statuses and ten 27-bit offsets, with no directory.
+     */
+    @Test
+    void shouldStoreOneBlockSegmentWithoutDirectory() throws IOException {
+        EventColumns events = new EventColumns();
+        for (int i = 0; i < 10; i++) {
+            events.add(Status.values()[i % 4], T0 + (i < 5 ? 0 : 86_400_000L) + i * 1000L);
+        }
+
+        ByteBuffer segment = assertRoundTrip(events);
+        assertEquals(SegmentHeader.SIZE + 3 + 4 + 34, segment.remaining());
+
+        List<Event> matching = new ArrayList<>();
+        SegmentCodec.decode(segment, SegmentHeader.decode(segment.duplicate()), new EventQuery(T0 + 3000, T0 + 86_406_000L, Status.UP),
+                (status, timestamp) -> matching.add(new Event(status, timestamp)));
+        assertEquals(List.of(new Event(Status.UP, T0 + 86_406_000L)), matching);
+    }
+
+    @Test
+    void shouldDecodeOnlyBlocksInsideQueryRange() throws IOException {
+        EventColumns events = new EventColumns();
+        for (int i = 0; i < 10 * SegmentCodec.BLOCK_SIZE; i++) {
+            events.add(Status.values()[i % 4], T0 + i * 1000L);
+        }
+        ByteBuffer segment = SegmentCodec.encode(events);
+        SegmentHeader header = SegmentHeader.decode(segment.duplicate());
+        int firstBlock = segment.getInt(SegmentHeader.SIZE + 2 * Long.BYTES);
+        int secondBlock = segment.getInt(SegmentHeader.SIZE + 20 + 2 * Long.BYTES);
+        Arrays.fill(segment.array(), firstBlock, secondBlock, (byte) 0x7F);
+
+        long from = T0 + 5 * SegmentCodec.BLOCK_SIZE * 1000L - 3000;
+        List<Event> matching = new ArrayList<>();
+        SegmentCodec.decode(segment, header, new EventQuery(from, from + 9000, Status.UP),
+                (status, timestamp) -> matching.add(new Event(status, timestamp)));
+        assertEquals(List.of(new Event(Status.UP, from + 1000), new Event(Status.UP, from + 5000), new Event(Status.UP, from + 9000)),
+                matching);
+    }
+
+    @Test
+    void shouldStopWhenVisitorDoes() throws IOException {
+        EventColumns events = new EventColumns();
+        for (int i = 0; i < 100; i++) {
+            events.add(Status.UP, T0 + i);
+        }
+        ByteBuffer segment = SegmentCodec.encode(events);
+        SegmentHeader header = SegmentHeader.decode(segment.duplicate());
+
+        int[] visited = new int[1];
+        assertFalse(SegmentCodec.decode(segment, header, EventQuery.ALL, (status, timestamp) -> ++visited[0] < 10));
+        assertEquals(10, visited[0]);
+    }
+
+    private static ByteBuffer assertRoundTrip(EventColumns events) throws IOException {
+        ByteBuffer segment = SegmentCodec.encode(events);
+        SegmentHeader header = SegmentHeader.decode(segment.duplicate());
+        assertTrue(header.compressed());
+        assertEquals(events.size(), header.count());
+
+        EventColumns decoded = new EventColumns();
+        assertTrue(SegmentCodec.decode(segment, header, EventQuery.ALL, decoded));
+        assertEquals(events.size(), decoded.size());
+        for (int i = 0; i < events.size(); i++) {
+            assertEquals(events.status(i), decoded.status(i));
+            assertEquals(events.timestamp(i), decoded.timestamp(i));
+        }
+        return segment;
+    }
+}